@@ -0,0 +1,176 @@
+/*******************************************************************************
+* All pairs reachability and hop distance index for small (dense) graphs,
+* so that repeated existsPath and distance queries are O(1) lookups.
+*
+* Built by multi-source bit-parallel BFS: sources are taken 64 at a time,
+* one bit per source, and each vertex keeps a word of the sources that have
+* reached it and a word of those that reached it in the last level. One
+* level is then one pass over the edges, OR-ing frontier words into
+* neighbors, for all 64 searches at once. Batches of sources run in
+* parallel. Since the graph is undirected, the final seen word of v for a
+* batch is exactly that word of the closure row of v.
+*
+* Distances count edges (weights are ignored). Memory is n^2 / 8 bytes for
+* the closure plus 2 n^2 bytes for distances, so n is capped at MAX_VERTICES.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+import java.util.stream.IntStream;
+
+public class AllPairsIndex {
+
+    public static final int MAX_VERTICES = 1 << 13;
+
+    private int n;
+    private int numWords;
+    private long[][] closure; // closure[v]: bitset of vertices reachable from v
+    private short[][] dist; // dist[s][v]: edges on a shortest s-v path, or -1
+    private long elapsedMillis;
+
+    // index every pair of vertices of g
+    public AllPairsIndex(Graph g) {
+        this(g.toCSR());
+    }
+
+    // index every pair of vertices of g. throws IllegalArgumentException if
+    // g has more than MAX_VERTICES vertices
+    public AllPairsIndex(CSRGraph g) {
+        long start = System.nanoTime();
+        this.n = g.getNumVertices();
+        if (n > MAX_VERTICES) {
+            throw new IllegalArgumentException("All pairs index supports at most " +
+            MAX_VERTICES + " vertices, got " + n + ".");
+        }
+        this.numWords = (n + 63) >>> 6;
+        this.closure = new long[n][numWords];
+        this.dist = new short[n][];
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        IntStream.range(0, numWords).parallel()
+            .forEach(word -> searchBatch(word, offsets, targets));
+        this.elapsedMillis = (System.nanoTime() - start) / 1000000;
+    }
+
+    // BFS from sources 64 * word .. 64 * word + 63 at once
+    private void searchBatch(int word, int[] offsets, int[] targets) {
+        int base = word << 6;
+        int batch = Math.min(64, n - base);
+        long[] seen = new long[n];
+        long[] frontier = new long[n];
+        long[] next = new long[n];
+        for (int i = 0; i < batch; i++) {
+            short[] row = new short[n];
+            Arrays.fill(row, (short) -1);
+            row[base + i] = 0;
+            dist[base + i] = row;
+            seen[base + i] = 1L << i;
+            frontier[base + i] = 1L << i;
+        }
+
+        boolean active = true;
+        for (short level = 1; active; level++) {
+            active = false;
+            for (int v = 0; v < n; v++) {
+                long reach = 0;
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) reach |= frontier[targets[k]];
+                reach &= ~seen[v];
+                next[v] = reach;
+                if (reach == 0) continue;
+                active = true;
+                seen[v] |= reach;
+                for (long bits = reach; bits != 0; bits &= bits - 1) {
+                    dist[base + Long.numberOfTrailingZeros(bits)][v] = level;
+                }
+            }
+            long[] swap = frontier;
+            frontier = next;
+            next = swap;
+        }
+        for (int v = 0; v < n; v++) closure[v][word] = seen[v];
+    }
+
+    // is there a path between u and v? O(1)
+    public boolean existsPath(int u, int v) {
+        checkVertex(u);
+        checkVertex(v);
+        return (closure[u][v >>> 6] & (1L << v)) != 0;
+    }
+
+    // returns number of edges on a shortest u-v path, or -1 if there is
+    // none. O(1)
+    public int distance(int u, int v) {
+        checkVertex(u);
+        checkVertex(v);
+        return dist[u][v];
+    }
+
+    // returns bitset of the vertices reachable from v (v included)
+    public long[] getReachable(int v) {
+        checkVertex(v);
+        return Arrays.copyOf(closure[v], numWords);
+    }
+
+    // returns the time taken to build the index
+    public long getElapsedMillis() {
+        return this.elapsedMillis;
+    }
+
+    private void checkVertex(int v) {
+        if (v < 0 || v >= n) {
+            throw new IllegalArgumentException("Vertex " + v + " does not exist.");
+        }
+    }
+
+    // run time trials: build the index on G(n, p) and time lookups against
+    // a reachability engine
+    public static void runTimeTrials(int n, double p, int queries) {
+        CSRGraph g = RandomGraph.getSparseGnp(n, p, 1);
+        AllPairsIndex index = new AllPairsIndex(g);
+        Reachability reach = new Reachability(g);
+        SplittableRandom random = new SplittableRandom(1);
+        int[] us = new int[queries];
+        int[] vs = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            us[i] = random.nextInt(n);
+            vs[i] = random.nextInt(n);
+        }
+
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < queries; i++) {
+            if (index.existsPath(us[i], vs[i])) found++;
+        }
+        double indexTime = (System.nanoTime() - start) / 1e3 / queries;
+
+        start = System.nanoTime();
+        int bfsFound = 0;
+        for (int i = 0; i < queries; i++) {
+            if (reach.existsPath(us[i], vs[i])) bfsFound++;
+        }
+        double bfsTime = (System.nanoTime() - start) / 1e3 / queries;
+        if (found != bfsFound) {
+            throw new IllegalStateException("Index and BFS disagree.");
+        }
+        System.out.println("n = " + n + ", build: " + index.getElapsedMillis() +
+        "ms, lookup: " + String.format("%.3f", indexTime) + "us/query, BFS: " +
+        String.format("%.3f", bfsTime) + "us/query");
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        if (args.length == 3) {
+            runTimeTrials(Integer.parseInt(args[0]), Double.parseDouble(args[1]),
+            Integer.parseInt(args[2]));
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        AllPairsIndex index = g.getAllPairsIndex();
+        int n = g.getNumVertices();
+        for (int u = 0; u < n; u++) {
+            StringBuilder row = new StringBuilder();
+            for (int v = 0; v < n; v++) row.append(index.distance(u, v)).append(" ");
+            System.out.println(row.toString().trim());
+        }
+    }
+}
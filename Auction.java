@@ -0,0 +1,303 @@
+/*******************************************************************************
+* Epsilon-scaling auction algorithm (Bertsekas) for maximum weight matchings in
+* bipartite graphs. Meant for large sparse assignment problems, where the
+* O(n^3) Hungarian algorithm is too slow.
+*
+* The matching problem is turned into a perfect assignment problem on the same
+* vertex ids: every vertex v is a "person" and an "object". Person v may take
+* object v (stay unmatched, value 0), a boy may take a neighboring girl (value
+* w), and a girl may take a neighboring boy's object (value 0), which frees up
+* the slot that boy left behind. Optimal assignments are exactly maximum
+* weight matchings.
+*
+* Bidding is Jacobi style: in each round every unassigned person computes its
+* bid in parallel on a fork-join pool, bids are applied to prices with atomic
+* max updates, and each object goes to one highest bidder.
+*
+* Weights are scaled by (n + 1) internally, so a final epsilon of
+* 1 / (n + 1) (the default) gives an optimal matching. Larger final epsilons
+* finish sooner and are within n * epsilon of optimal.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+public class Auction {
+    // rounds with fewer bidders than this are run on the calling thread
+    private static final int PARALLEL_THRESHOLD = 512;
+    private static final double DEFAULT_EPSILON_FACTOR = 5;
+
+    private HashSet<Edge> maxMatching;
+    private long maxMatchingWeight;
+    private int[] vertexMatches; // vertexMatches[v] is mate of v, or -1
+    private int numPhases;
+    private long numRounds;
+
+    private int n;
+    private ForkJoinPool pool;
+    private int[] arcOffsets; // arcs of person v: [arcOffsets[v], arcOffsets[v+1])
+    private int[] arcObjects;
+    private long[] arcValues; // scaled values
+    private AtomicLongArray prices;
+    private AtomicIntegerArray winner; // highest bidder of object this round
+    private int[] owner; // person currently holding object, or -1
+    private int[] assigned; // object currently held by person, or -1
+    private int[] bidObject;
+    private long[] bidAmount;
+
+    // run auction with the default epsilon schedule, giving an exact result
+    public Auction(Graph g) {
+        this(g.toCSR());
+    }
+
+    // run auction with the default epsilon schedule, giving an exact result
+    public Auction(CSRGraph g) {
+        this(g, -1, DEFAULT_EPSILON_FACTOR, 0, ForkJoinPool.commonPool());
+    }
+
+    // run auction with a custom epsilon schedule: start at startEpsilon
+    // (or max weight / 2 if negative), divide by epsilonFactor after each
+    // phase, and stop after the phase run with finalEpsilon (0 = exact).
+    // epsilons are in units of the edge weights
+    public Auction(CSRGraph g, double startEpsilon, double epsilonFactor,
+    double finalEpsilon, ForkJoinPool pool) {
+        if (epsilonFactor <= 1) {
+            throw new IllegalArgumentException("epsilon factor must be > 1");
+        }
+        if (finalEpsilon < 0) {
+            throw new IllegalArgumentException("final epsilon must be >= 0");
+        }
+        boolean[] partitions = g.getBipartitions();
+        if (partitions == null) {
+            throw new IllegalArgumentException("Input must be a bipartite graph.");
+        }
+
+        this.n = g.getNumVertices();
+        this.pool = pool;
+        long scale = n + 1;
+        long maxWeight = buildArcs(g, partitions, scale);
+
+        long eps = startEpsilon < 0 ? Math.max(1, maxWeight * scale / 2)
+        : toScaled(startEpsilon, scale);
+        long finalEps = toScaled(finalEpsilon, scale);
+        if (eps < finalEps) eps = finalEps;
+
+        this.prices = new AtomicLongArray(n);
+        this.winner = new AtomicIntegerArray(n);
+        for (int j = 0; j < n; j++) winner.set(j, -1);
+        this.owner = new int[n];
+        this.assigned = new int[n];
+        this.bidObject = new int[n];
+        this.bidAmount = new long[n];
+
+        /* FIND AND SET MAX MATCHING */
+        while (true) {
+            runPhase(eps);
+            numPhases++;
+            if (eps <= finalEps) break;
+            eps = Math.max(finalEps, (long) (eps / epsilonFactor));
+        }
+
+        // boys holding a girl's object are the matched edges
+        this.vertexMatches = new int[n];
+        Arrays.fill(vertexMatches, -1);
+        this.maxMatching = new HashSet<Edge>();
+        this.maxMatchingWeight = 0;
+        for (int v = 0; v < n; v++) {
+            int obj = assigned[v];
+            if (!partitions[v] || obj == v) continue;
+            int w = g.getWeight(v, obj);
+            vertexMatches[v] = obj;
+            vertexMatches[obj] = v;
+            maxMatching.add(new Edge(v, obj, w));
+            maxMatchingWeight += w;
+        }
+
+        if (!HopcroftKarp.isValidMatching(this.maxMatching)) {
+            throw new IllegalStateException("programmer error;" +
+            " somehow created invalid matching.");
+        }
+    }
+
+    // build the arcs of the assignment problem, returns max edge weight
+    private long buildArcs(CSRGraph g, boolean[] partitions, long scale) {
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int[] weights = g.getWeights();
+        long maxWeight = 0;
+
+        this.arcOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int count = 1; // own object
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (weights[k] > 0) count++;
+            }
+            arcOffsets[v + 1] = arcOffsets[v] + count;
+        }
+        this.arcObjects = new int[arcOffsets[n]];
+        this.arcValues = new long[arcOffsets[n]];
+        for (int v = 0; v < n; v++) {
+            int a = arcOffsets[v];
+            arcObjects[a++] = v;
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (weights[k] <= 0) continue;
+                arcObjects[a] = targets[k];
+                arcValues[a] = partitions[v] ? weights[k] * scale : 0;
+                maxWeight = Math.max(maxWeight, weights[k]);
+                a++;
+            }
+        }
+        return maxWeight;
+    }
+
+    // run auction rounds with fixed epsilon until every person holds an
+    // object. prices carry over from the previous phase
+    private void runPhase(long eps) {
+        Arrays.fill(owner, -1);
+        Arrays.fill(assigned, -1);
+        int[] bidders = new int[n];
+        int numBidders = n;
+        for (int v = 0; v < n; v++) bidders[v] = v;
+        int[] nextBidders = new int[n];
+
+        while (numBidders > 0) {
+            numRounds++;
+            final int[] roundBidders = bidders;
+
+            // compute bids against this round's prices, then raise prices
+            forEach(numBidders, i -> computeBid(roundBidders[i], eps));
+            forEach(numBidders, i -> {
+                int person = roundBidders[i];
+                prices.accumulateAndGet(bidObject[person], bidAmount[person], Math::max);
+            });
+
+            // one highest bidder claims each object
+            forEach(numBidders, i -> {
+                int person = roundBidders[i];
+                int obj = bidObject[person];
+                if (bidAmount[person] == prices.get(obj)) {
+                    winner.compareAndSet(obj, -1, person);
+                }
+            });
+
+            // apply the assignment; displaced owners bid again next round
+            int numNext = 0;
+            for (int i = 0; i < numBidders; i++) {
+                int person = bidders[i];
+                int obj = bidObject[person];
+                if (winner.get(obj) != person) continue;
+                winner.set(obj, -1);
+                int prevOwner = owner[obj];
+                if (prevOwner != -1) {
+                    assigned[prevOwner] = -1;
+                    nextBidders[numNext++] = prevOwner;
+                }
+                owner[obj] = person;
+                assigned[person] = obj;
+            }
+            // as do the persons that were outbid
+            for (int i = 0; i < numBidders; i++) {
+                if (assigned[bidders[i]] == -1) nextBidders[numNext++] = bidders[i];
+            }
+
+            int[] tmp = bidders;
+            bidders = nextBidders;
+            nextBidders = tmp;
+            numBidders = numNext;
+        }
+    }
+
+    // best and second best net values decide how much person bids
+    private void computeBid(int person, long eps) {
+        long best = Long.MIN_VALUE;
+        long second = Long.MIN_VALUE;
+        int bestArc = -1;
+        for (int a = arcOffsets[person]; a < arcOffsets[person + 1]; a++) {
+            long value = arcValues[a] - prices.get(arcObjects[a]);
+            if (value > best) {
+                second = best;
+                best = value;
+                bestArc = a;
+            }
+            else if (value > second) {
+                second = value;
+            }
+        }
+        // a person with a single choice only needs to outbid by epsilon
+        if (second == Long.MIN_VALUE) second = best;
+        bidObject[person] = arcObjects[bestArc];
+        bidAmount[person] = arcValues[bestArc] - second + eps;
+    }
+
+    // run body for 0 .. size-1, in parallel on the pool if worthwhile
+    private void forEach(int size, java.util.function.IntConsumer body) {
+        if (size < PARALLEL_THRESHOLD) {
+            for (int i = 0; i < size; i++) body.accept(i);
+            return;
+        }
+        pool.submit(() -> IntStream.range(0, size).parallel().forEach(body)).join();
+    }
+
+    // convert an epsilon in weight units into scaled units (at least 1)
+    private static long toScaled(double eps, long scale) {
+        return Math.max(1, (long) Math.ceil(eps * scale));
+    }
+
+    // returns the edge set of the max weight matching of this graph
+    public HashSet<Edge> getMaxMatching() {
+        return this.maxMatching;
+    }
+
+    // returns the number of edges in the max weight matching of this graph
+    public int getMaxMatchingSize() {
+        return this.maxMatching.size();
+    }
+
+    // returns the total weight of the max weight matching of this graph
+    public long getMaxMatchingWeight() {
+        return this.maxMatchingWeight;
+    }
+
+    // returns mate of vertex v in the matching, or -1 if v is unmatched
+    public int getMate(int v) {
+        return this.vertexMatches[v];
+    }
+
+    // how many epsilon scaling phases were run?
+    public int getNumPhases() {
+        return this.numPhases;
+    }
+
+    // how many bidding rounds were run, over all phases?
+    public long getNumRounds() {
+        return this.numRounds;
+    }
+
+    // String representation of result
+    public String toString() {
+        StringBuilder edges = new StringBuilder();
+        for (Edge e : this.getMaxMatching()) {
+            edges.append(e).append("\n");
+        }
+        return "--------------------------------------------------\n" +
+        "AUCTION RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Phases / rounds:\n" + this.numPhases + " / " + this.numRounds + "\n\n" +
+        "Max matching weight:\n" + this.getMaxMatchingWeight() + "\n\n" +
+        "Max matching size:\n" + this.getMaxMatchingSize() + "\n\n" +
+        "Illustration:\n" +
+        edges +
+        "--------------------------------------------------";
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        Auction auction = new Auction(g);
+        System.out.println(auction);
+    }
+}
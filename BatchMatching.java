@@ -0,0 +1,193 @@
+/*******************************************************************************
+* Maximum cardinality matchings of many independent graphs at once (e.g. one
+* per grade and per school), spread over a bounded pool of threads. A run
+* keeps a pool of idle SparseBlossom engines: each task borrows one, reuses
+* its buffers and hands it back, so there is about one engine per worker
+* thread and small solves allocate only their result. The engines are
+* dropped when the run ends, so no buffers stay attached to the threads.
+*
+* Results are returned in input order, along with aggregate throughput.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+import java.util.concurrent.*;
+
+public class BatchMatching {
+
+    private ArrayList<CSRGraph> graphs;
+    private int[][] mates; // mates[i] is the mate array of graph i
+    private int[] sizes; // sizes[i] is the matching size of graph i
+    private long totalVertices;
+    private long totalEdges;
+    private long elapsedNanos;
+
+    // solve every graph, using one thread per available processor
+    public BatchMatching(Collection<CSRGraph> graphs) {
+        this(graphs, Runtime.getRuntime().availableProcessors());
+    }
+
+    // solve every graph on a fixed pool of numThreads threads
+    public BatchMatching(Collection<CSRGraph> graphs, int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            solve(graphs, pool);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    // solve every graph on the caller's executor (not shut down here)
+    public BatchMatching(Collection<CSRGraph> graphs, ExecutorService pool) {
+        solve(graphs, pool);
+    }
+
+    // solve every graph, converting each to CSR form first
+    public static BatchMatching forGraphs(Collection<Graph> graphs) {
+        ArrayList<CSRGraph> csrs = new ArrayList<CSRGraph>();
+        for (Graph g : graphs) csrs.add(g.toCSR());
+        return new BatchMatching(csrs);
+    }
+
+    private void solve(Collection<CSRGraph> input, ExecutorService pool) {
+        long start = System.nanoTime();
+        this.graphs = new ArrayList<CSRGraph>(input);
+        int numGraphs = graphs.size();
+        this.mates = new int[numGraphs][];
+        this.sizes = new int[numGraphs];
+
+        // idle engines of this run
+        ConcurrentLinkedQueue<SparseBlossom> engines = new ConcurrentLinkedQueue<SparseBlossom>();
+        ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < numGraphs; i++) {
+            final int index = i;
+            tasks.add(() -> {
+                SparseBlossom engine = engines.poll();
+                if (engine == null) engine = new SparseBlossom();
+                engine.solve(graphs.get(index));
+                mates[index] = engine.getMates();
+                sizes[index] = engine.getMaxMatchingSize();
+                engines.add(engine);
+                return null;
+            });
+            totalVertices += graphs.get(i).getNumVertices();
+            totalEdges += graphs.get(i).getNumEdges();
+        }
+
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while matching batch.", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Matching a graph of the batch failed.",
+            e.getCause());
+        }
+        this.elapsedNanos = System.nanoTime() - start;
+    }
+
+    // returns number of graphs in the batch
+    public int getNumGraphs() {
+        return this.graphs.size();
+    }
+
+    // returns mate array of graph i (-1 for unmatched vertices)
+    public int[] getMates(int i) {
+        return this.mates[i];
+    }
+
+    // returns size of the max matching of graph i
+    public int getMaxMatchingSize(int i) {
+        return this.sizes[i];
+    }
+
+    // returns edge set of the max matching of graph i
+    public HashSet<Edge> getMaxMatching(int i) {
+        CSRGraph g = graphs.get(i);
+        HashSet<Edge> matching = new HashSet<Edge>();
+        for (int v = 0; v < mates[i].length; v++) {
+            int mate = mates[i][v];
+            if (mate > v) matching.add(new Edge(v, mate, g.getWeight(v, mate)));
+        }
+        return matching;
+    }
+
+    // returns wall clock time of the whole batch, in milliseconds
+    public double getElapsedMillis() {
+        return this.elapsedNanos / 1e6;
+    }
+
+    // returns graphs solved per second
+    public double getGraphsPerSecond() {
+        return graphs.size() / Math.max(elapsedNanos / 1e9, 1e-9);
+    }
+
+    // returns edges processed per second
+    public double getEdgesPerSecond() {
+        return totalEdges / Math.max(elapsedNanos / 1e9, 1e-9);
+    }
+
+    // String representation of result
+    public String toString() {
+        long matched = 0;
+        for (int size : sizes) matched += size;
+        return "--------------------------------------------------\n" +
+        "BATCH MATCHING RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Graphs: " + graphs.size() + " (" + totalVertices + " vertices, " +
+        totalEdges + " edges)\n" +
+        "Matched edges: " + matched + "\n" +
+        "Elapsed: " + String.format("%.1f", getElapsedMillis()) + "ms\n" +
+        "Throughput: " + String.format("%.0f", getGraphsPerSecond()) + " graphs/s, " +
+        String.format("%.0f", getEdgesPerSecond()) + " edges/s\n" +
+        "--------------------------------------------------";
+    }
+
+    // run time trials: numGraphs random graphs on n vertices with m edges,
+    // one Blossom at a time vs one batch
+    public static void runTimeTrials(int numGraphs, int n, int m) {
+        ArrayList<Graph> graphs = new ArrayList<Graph>();
+        ArrayList<CSRGraph> csrs = new ArrayList<CSRGraph>();
+        for (int i = 0; i < numGraphs; i++) {
+            CSRGraph g = RandomGraph.getSparseGeneral(n, m, i);
+            csrs.add(g);
+            graphs.add(g.toGraph());
+        }
+
+        long start = System.nanoTime();
+        int[] blossomSizes = new int[numGraphs];
+        for (int i = 0; i < numGraphs; i++) {
+            blossomSizes[i] = new Blossom(graphs.get(i)).getMaxMatchingSize();
+        }
+        long blossomTime = (System.nanoTime() - start) / 1000000;
+
+        BatchMatching batch = new BatchMatching(csrs);
+        for (int i = 0; i < numGraphs; i++) {
+            if (blossomSizes[i] != batch.getMaxMatchingSize(i)) {
+                throw new IllegalStateException("Blossom and batch found " +
+                "different size matchings.");
+            }
+        }
+        System.out.println("Blossom, one at a time: " + blossomTime + "ms");
+        System.out.println(batch);
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        if (args.length == 3) {
+            runTimeTrials(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+            Integer.parseInt(args[2]));
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        BatchMatching batch = forGraphs(Collections.singletonList(g));
+        System.out.println(batch.getMaxMatching(0));
+        System.out.println(batch);
+    }
+}
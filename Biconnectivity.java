@@ -0,0 +1,290 @@
+/*******************************************************************************
+* Articulation points, bridges, biconnected components (blocks) and
+* 2-edge-connected components of a CSRGraph, from one depth first search
+* with Tarjan / Hopcroft lowlinks. O(n + m).
+*   - low[v]: earliest discovery time reachable from the subtree of v using
+*     at most one back edge
+*   - a tree edge (p, v) closes a block when low[v] >= disc[p], which makes
+*     p an articulation point unless it is a root with a single child
+*   - it is a bridge when low[v] > disc[p], which also closes a
+*     2-edge-connected component (the vertices pushed since v)
+*
+* The search keeps its own stack in arrays, so no recursion is used and deep
+* graphs (long paths) are safe. Edges are numbered as in LineGraph.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class Biconnectivity {
+
+    private CSRGraph g;
+    private int n;
+    private LineGraph ids; // edge numbering of g
+    private boolean[] articulation;
+    private int numArticulationPoints;
+    private boolean[] bridge; // indexed by edge id
+    private int numBridges;
+    private int[] blockOf; // block of each edge
+    private int numBlocks;
+    private int[] blockStart; // vertices of block b: blockVertices[blockStart[b] ..]
+    private int[] blockVertices;
+    private int[] twoEdgeComponent; // 2-edge-connected component of each vertex
+    private int numTwoEdgeComponents;
+    private long elapsedMillis;
+
+    // decompose g
+    public Biconnectivity(Graph g) {
+        this(g.toCSR());
+    }
+
+    // decompose g
+    public Biconnectivity(CSRGraph g) {
+        long start = System.nanoTime();
+        this.g = g;
+        this.n = g.getNumVertices();
+        this.ids = new LineGraph(g);
+        search();
+        this.elapsedMillis = (System.nanoTime() - start) / 1000000;
+    }
+
+    private void search() {
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int m = ids.getNumEdges();
+
+        int[] disc = new int[n];
+        int[] low = new int[n];
+        int[] parentEdge = new int[n];
+        int[] next = new int[n]; // next slot of v to scan
+        int[] stack = new int[n]; // DFS path
+        int[] edgeStack = new int[m]; // edges of blocks not yet closed
+        int[] vertexStack = new int[n]; // vertices of 2-edge components not yet closed
+        int[] blockMark = new int[n];
+        Arrays.fill(disc, -1);
+        Arrays.fill(blockMark, -1);
+
+        this.articulation = new boolean[n];
+        this.bridge = new boolean[m];
+        this.blockOf = new int[m];
+        this.twoEdgeComponent = new int[n];
+        int[] starts = new int[m + 1];
+        int[] members = new int[2 * m];
+        int numMembers = 0;
+        int time = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (disc[root] != -1) continue;
+            int depth = 0;
+            int edgeTop = 0;
+            int vertexTop = 0;
+            int rootChildren = 0;
+            disc[root] = low[root] = time++;
+            parentEdge[root] = -1;
+            next[root] = offsets[root];
+            stack[depth++] = root;
+            vertexStack[vertexTop++] = root;
+
+            while (depth > 0) {
+                int v = stack[depth - 1];
+                if (next[v] < offsets[v + 1]) {
+                    int k = next[v]++;
+                    int u = targets[k];
+                    int e = ids.getEdgeIdAt(k);
+                    if (e == parentEdge[v]) continue;
+                    if (disc[u] == -1) {
+                        // tree edge
+                        if (v == root) rootChildren++;
+                        edgeStack[edgeTop++] = e;
+                        disc[u] = low[u] = time++;
+                        parentEdge[u] = e;
+                        next[u] = offsets[u];
+                        stack[depth++] = u;
+                        vertexStack[vertexTop++] = u;
+                    }
+                    else if (disc[u] < disc[v]) {
+                        // back edge to an ancestor; seen once, from below
+                        edgeStack[edgeTop++] = e;
+                        low[v] = Math.min(low[v], disc[u]);
+                    }
+                    continue;
+                }
+
+                // v is finished
+                depth--;
+                if (v == root) break;
+                int p = stack[depth - 1];
+                low[p] = Math.min(low[p], low[v]);
+                if (low[v] >= disc[p]) {
+                    if (p != root && !articulation[p]) {
+                        articulation[p] = true;
+                        numArticulationPoints++;
+                    }
+                    // pop the block closed by tree edge (p, v)
+                    starts[numBlocks] = numMembers;
+                    int e;
+                    do {
+                        e = edgeStack[--edgeTop];
+                        blockOf[e] = numBlocks;
+                        int a = ids.getEndpoint1(e);
+                        int b = ids.getEndpoint2(e);
+                        if (blockMark[a] != numBlocks) {
+                            blockMark[a] = numBlocks;
+                            members[numMembers++] = a;
+                        }
+                        if (blockMark[b] != numBlocks) {
+                            blockMark[b] = numBlocks;
+                            members[numMembers++] = b;
+                        }
+                    } while (e != parentEdge[v]);
+                    numBlocks++;
+                }
+                if (low[v] > disc[p]) {
+                    bridge[parentEdge[v]] = true;
+                    numBridges++;
+                    // pop the 2-edge-connected component hanging below v
+                    int x;
+                    do {
+                        x = vertexStack[--vertexTop];
+                        twoEdgeComponent[x] = numTwoEdgeComponents;
+                    } while (x != v);
+                    numTwoEdgeComponents++;
+                }
+            }
+
+            if (rootChildren >= 2) {
+                articulation[root] = true;
+                numArticulationPoints++;
+            }
+            // what is left belongs with the root
+            while (vertexTop > 0) twoEdgeComponent[vertexStack[--vertexTop]] = numTwoEdgeComponents;
+            numTwoEdgeComponents++;
+            if (edgeTop != 0) {
+                throw new IllegalStateException("programmer error; edges left after search.");
+            }
+        }
+        starts[numBlocks] = numMembers;
+        this.blockStart = Arrays.copyOf(starts, numBlocks + 1);
+        this.blockVertices = Arrays.copyOf(members, numMembers);
+    }
+
+    /* ACCESSOR METHODS */
+
+    // is v a cut vertex, i.e. does removing it disconnect its component?
+    public boolean isArticulationPoint(int v) {
+        return this.articulation[v];
+    }
+
+    // returns the articulation points, in increasing order
+    public int[] getArticulationPoints() {
+        int[] points = new int[numArticulationPoints];
+        int i = 0;
+        for (int v = 0; v < n; v++) {
+            if (articulation[v]) points[i++] = v;
+        }
+        return points;
+    }
+
+    // returns number of articulation points
+    public int getNumArticulationPoints() {
+        return this.numArticulationPoints;
+    }
+
+    // is (u, v) an edge whose removal disconnects its component?
+    public boolean isBridge(int u, int v) {
+        int e = ids.getEdgeId(u, v);
+        return e != -1 && bridge[e];
+    }
+
+    // returns the bridges
+    public HashSet<Edge> getBridges() {
+        HashSet<Edge> bridges = new HashSet<Edge>();
+        for (int e = 0; e < bridge.length; e++) {
+            if (bridge[e]) bridges.add(ids.getEdge(e));
+        }
+        return bridges;
+    }
+
+    // returns number of bridges
+    public int getNumBridges() {
+        return this.numBridges;
+    }
+
+    // returns block (biconnected component) of edge (u, v), or -1 if there
+    // is no such edge
+    public int getBlock(int u, int v) {
+        int e = ids.getEdgeId(u, v);
+        return e == -1 ? -1 : blockOf[e];
+    }
+
+    // returns the vertices of block b. isolated vertices are in no block
+    public int[] getBlockVertices(int b) {
+        return Arrays.copyOfRange(blockVertices, blockStart[b], blockStart[b + 1]);
+    }
+
+    // returns number of blocks
+    public int getNumBlocks() {
+        return this.numBlocks;
+    }
+
+    // returns 2-edge-connected component of v (0 .. k-1)
+    public int getTwoEdgeComponent(int v) {
+        return this.twoEdgeComponent[v];
+    }
+
+    // returns number of 2-edge-connected components
+    public int getNumTwoEdgeComponents() {
+        return this.numTwoEdgeComponents;
+    }
+
+    // returns the time taken by the decomposition
+    public long getElapsedMillis() {
+        return this.elapsedMillis;
+    }
+
+    // String representation of result
+    public String toString() {
+        StringBuilder blocks = new StringBuilder();
+        for (int b = 0; b < numBlocks; b++) {
+            blocks.append(b).append(": ").append(Arrays.toString(getBlockVertices(b))).append("\n");
+        }
+        return "--------------------------------------------------\n" +
+        "BICONNECTIVITY RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Articulation points: " + Arrays.toString(getArticulationPoints()) + "\n" +
+        "Bridges: " + getBridges() + "\n" +
+        "2-edge-connected components: " + numTwoEdgeComponents + "\n\n" +
+        "Blocks:\n" +
+        blocks +
+        "--------------------------------------------------";
+    }
+
+    // run time trials on a random graph with n vertices and m edges, and on
+    // a path with n vertices (the deepest possible search)
+    public static void runTimeTrials(int n, long m) {
+        Biconnectivity random = new Biconnectivity(RandomGraph.getSparseGeneral(n, m, 1));
+        System.out.println("Random graph: " + random.getElapsedMillis() + "ms, " +
+        random.getNumArticulationPoints() + " articulation points, " +
+        random.getNumBridges() + " bridges, " + random.getNumBlocks() + " blocks");
+
+        int[] us = new int[n - 1];
+        int[] vs = new int[n - 1];
+        for (int i = 0; i + 1 < n; i++) {
+            us[i] = i;
+            vs[i] = i + 1;
+        }
+        Biconnectivity path = new Biconnectivity(CSRGraph.fromEdges(n, us, vs, null, n - 1));
+        System.out.println("Path: " + path.getElapsedMillis() + "ms, " +
+        path.getNumBridges() + " bridges");
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        if (args.length == 2) {
+            runTimeTrials(Integer.parseInt(args[0]), Long.parseLong(args[1]));
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        System.out.println(new Biconnectivity(g));
+    }
+}
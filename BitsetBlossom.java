@@ -0,0 +1,272 @@
+/*******************************************************************************
+* Edmonds' blossom algorithm over bitset rows, for maximum cardinality
+* matchings in dense graphs. Neighbors are scanned a word at a time, and
+* vertices that are already odd in the alternating tree are masked out 64 at
+* a time, so a search costs O(n^2 / 64) word operations plus contractions.
+*
+* Besides plain BitsetGraphs, this can run on the doubled "delta hitting"
+* graph of Graph.HasDeltaHittingMatchingByReduction without building it: the
+* copies form a clique and are complete to every vertex of less than max
+* degree, so each word of their rows is produced on the fly from two masks.
+* Time complexity: O(n^3 / 64 + n * c * n), c = number of contractions
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class BitsetBlossom {
+
+    private BitsetGraph g;
+    private boolean gadget; // run on the implicit delta hitting graph?
+    private int n; // vertices of g
+    private int copyBase; // gadget: id of copy 0 (word aligned)
+    private int baseWords; // words per row of g
+    private int rowWords; // words per row of the graph being matched
+    private int size; // id space, rowWords * 64
+    private long[] realMask; // bits of vertices 0 .. n-1
+    private long[] lowMask; // gadget: vertices of less than max degree
+    private boolean[] low;
+
+    private int[] match;
+    private int[] p; // parent in alternating tree
+    private int[] base; // base of blossom containing vertex
+    private int[] queue;
+    private boolean[] blossom; // scratch for contraction
+    private boolean[] lcaMark; // scratch for lca
+    private long[] evenBits; // outer vertices of the current tree
+    private long[] reachedBits; // vertices with a parent in the current tree
+    private int matchingSize;
+
+    // find a maximum matching of g
+    public BitsetBlossom(BitsetGraph g) {
+        this(g, false);
+    }
+
+    // find a maximum matching of the doubled graph used to decide whether g
+    // has a matching covering all its max degree vertices; such a matching
+    // exists iff this one matches all 2n vertices
+    public static BitsetBlossom deltaHittingGadget(BitsetGraph g) {
+        return new BitsetBlossom(g, true);
+    }
+
+    private BitsetBlossom(BitsetGraph g, boolean gadget) {
+        this.g = g;
+        this.gadget = gadget;
+        this.n = g.getNumVertices();
+        this.baseWords = g.getNumWords();
+        this.rowWords = gadget ? 2 * baseWords : baseWords;
+        this.size = rowWords * 64;
+        this.copyBase = baseWords * 64;
+        this.realMask = g.allVerticesMask();
+
+        if (gadget) {
+            int maxDegree = g.getMaxDegree();
+            this.low = new boolean[n];
+            this.lowMask = new long[baseWords];
+            for (int v = 0; v < n; v++) {
+                if (g.degree(v) < maxDegree) {
+                    low[v] = true;
+                    lowMask[v >>> 6] |= 1L << v;
+                }
+            }
+        }
+
+        this.match = new int[size];
+        this.p = new int[size];
+        this.base = new int[size];
+        this.queue = new int[size];
+        this.blossom = new boolean[size];
+        this.lcaMark = new boolean[size];
+        this.evenBits = new long[rowWords];
+        this.reachedBits = new long[rowWords];
+        Arrays.fill(match, -1);
+
+        /* FIND AND SET MAX MATCHING */
+        greedyMatch();
+        int numIds = gadget ? copyBase + n : n;
+        for (int v = 0; v < numIds; v++) {
+            if (!isVertex(v) || match[v] != -1) continue;
+            int free = findPath(v);
+            if (free != -1) augment(free);
+        }
+
+        matchingSize = 0;
+        for (int v = 0; v < size; v++) {
+            if (match[v] > v) matchingSize++;
+        }
+    }
+
+    // word w of the neighborhood of v
+    private long word(int v, int w) {
+        if (!gadget) return g.getRow(v)[w];
+        if (v < copyBase) {
+            if (w < baseWords) return g.getRow(v)[w];
+            return low[v] ? realMask[w - baseWords] : 0;
+        }
+        // copy vertex: adjacent to low degree vertices and all other copies
+        if (w < baseWords) return lowMask[w];
+        long word = realMask[w - baseWords];
+        int i = v - copyBase;
+        if ((i >>> 6) == w - baseWords) word &= ~(1L << i);
+        return word;
+    }
+
+    // is id v an actual vertex (and not padding between halves)?
+    private boolean isVertex(int v) {
+        if (v < copyBase) return v < n;
+        return gadget && v - copyBase < n;
+    }
+
+    // match vertices greedily with their first free neighbor
+    private void greedyMatch() {
+        long[] freeBits = new long[rowWords];
+        for (int w = 0; w < baseWords; w++) {
+            freeBits[w] = realMask[w];
+            if (gadget) freeBits[baseWords + w] = realMask[w];
+        }
+        for (int v = 0; v < size; v++) {
+            if (!isVertex(v) || match[v] != -1) continue;
+            for (int w = 0; w < rowWords; w++) {
+                long bits = word(v, w) & freeBits[w];
+                if (bits == 0) continue;
+                int u = (w << 6) + Long.numberOfTrailingZeros(bits);
+                match[u] = v;
+                match[v] = u;
+                freeBits[u >>> 6] &= ~(1L << u);
+                freeBits[v >>> 6] &= ~(1L << v);
+                break;
+            }
+        }
+    }
+
+    // grow an alternating tree from root; returns a free vertex reached by
+    // an augmenting path, or -1 if there is none
+    private int findPath(int root) {
+        Arrays.fill(p, -1);
+        Arrays.fill(evenBits, 0);
+        Arrays.fill(reachedBits, 0);
+        for (int i = 0; i < size; i++) base[i] = i;
+
+        int head = 0;
+        int tail = 0;
+        setBit(evenBits, root);
+        queue[tail++] = root;
+
+        while (head < tail) {
+            int v = queue[head++];
+            for (int w = 0; w < rowWords; w++) {
+                // skip odd vertices: reached, but not outer
+                long bits = word(v, w) & (~reachedBits[w] | evenBits[w]);
+                while (bits != 0) {
+                    int to = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (base[v] == base[to] || match[v] == to) continue;
+
+                    if (isSet(evenBits, to)) {
+                        // edge between two outer vertices: contract blossom
+                        int curBase = lca(v, to);
+                        Arrays.fill(blossom, false);
+                        markPath(v, curBase, to);
+                        markPath(to, curBase, v);
+                        for (int i = 0; i < size; i++) {
+                            if (!blossom[base[i]]) continue;
+                            base[i] = curBase;
+                            if (!isSet(evenBits, i)) {
+                                setBit(evenBits, i);
+                                queue[tail++] = i;
+                            }
+                        }
+                    }
+                    else if (p[to] == -1) {
+                        p[to] = v;
+                        setBit(reachedBits, to);
+                        if (match[to] == -1) return to;
+                        int next = match[to];
+                        setBit(evenBits, next);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    // lowest common ancestor of the blossoms containing a and b
+    private int lca(int a, int b) {
+        Arrays.fill(lcaMark, false);
+        while (true) {
+            a = base[a];
+            lcaMark[a] = true;
+            if (match[a] == -1) break; // reached root
+            a = p[match[a]];
+        }
+        while (true) {
+            b = base[b];
+            if (lcaMark[b]) return b;
+            b = p[match[b]];
+        }
+    }
+
+    // mark blossom vertices on the path from v down to base b, and point
+    // the parents of outer vertices around the cycle
+    private void markPath(int v, int b, int child) {
+        while (base[v] != b) {
+            blossom[base[v]] = true;
+            blossom[base[match[v]]] = true;
+            p[v] = child;
+            setBit(reachedBits, v);
+            child = match[v];
+            v = p[match[v]];
+        }
+    }
+
+    // flip matched and unmatched edges along the path ending at free vertex v
+    private void augment(int v) {
+        while (v != -1) {
+            int pv = p[v];
+            int ppv = match[pv];
+            match[v] = pv;
+            match[pv] = v;
+            v = ppv;
+        }
+    }
+
+    private static void setBit(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    private static boolean isSet(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    // returns the size of the max cardinality matching
+    public int getMaxMatchingSize() {
+        return this.matchingSize;
+    }
+
+    // returns mate of vertex v of g, or -1 if v is unmatched (or is matched
+    // to a copy, in delta hitting mode)
+    public int getMate(int v) {
+        int mate = this.match[v];
+        return mate >= n ? -1 : mate;
+    }
+
+    // returns the edge set of the max cardinality matching of g
+    // (edges to copies are left out in delta hitting mode)
+    public HashSet<Edge> getMaxMatching() {
+        HashSet<Edge> matching = new HashSet<Edge>();
+        for (int v = 0; v < n; v++) {
+            int mate = getMate(v);
+            if (mate > v) matching.add(new Edge(v, mate, 1));
+        }
+        return matching;
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        BitsetBlossom blossom = new BitsetBlossom(new BitsetGraph(g));
+        System.out.println("Max matching size: " + blossom.getMaxMatchingSize());
+        System.out.println(blossom.getMaxMatching());
+    }
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+* Representation of a simple graph as rows of bitsets: bit u of row v is set
+* iff (u, v) is an edge. Each row takes n/64 longs, so a dense graph on n
+* vertices costs n^2/8 bytes (vs 4n^2 for the int adjacency matrix), and set
+* operations on neighborhoods run 64 vertices at a time.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class BitsetGraph {
+
+    private int numVertices;
+    private int numWords; // longs per row
+    private long[][] rows;
+
+    // construct bitset graph from the adjacency lists of a Graph
+    public BitsetGraph(Graph g) {
+        this(g.getNumVertices());
+        for (int v = 0; v < numVertices; v++) {
+            for (Edge e : g.getVertices().get(v)) {
+                if (e.v2() != v) setBit(rows[v], e.v2());
+            }
+        }
+    }
+
+    // construct bitset graph from a CSR graph
+    public BitsetGraph(CSRGraph g) {
+        this(g.getNumVertices());
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        for (int v = 0; v < numVertices; v++) {
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                setBit(rows[v], targets[k]);
+            }
+        }
+    }
+
+    // construct empty graph on n vertices
+    public BitsetGraph(int n) {
+        this.numVertices = n;
+        this.numWords = (n + 63) >>> 6;
+        this.rows = new long[n][numWords];
+    }
+
+    // add undirected edge (u, v)
+    public void addEdge(int u, int v) {
+        if (u == v) return;
+        setBit(rows[u], v);
+        setBit(rows[v], u);
+    }
+
+    // is there an edge between u and v? O(1)
+    public boolean hasEdge(int u, int v) {
+        return (rows[u][v >>> 6] & (1L << v)) != 0;
+    }
+
+    // returns degree of vertex v. O(n/64)
+    public int degree(int v) {
+        int degree = 0;
+        for (long word : rows[v]) degree += Long.bitCount(word);
+        return degree;
+    }
+
+    // returns max degree of the graph.
+    public int getMaxDegree() {
+        int maxDegree = 0;
+        for (int v = 0; v < numVertices; v++) {
+            maxDegree = Math.max(maxDegree, degree(v));
+        }
+        return maxDegree;
+    }
+
+    // returns number of edges in graph.
+    public long getNumEdges() {
+        long sum = 0;
+        for (int v = 0; v < numVertices; v++) sum += degree(v);
+        return sum / 2;
+    }
+
+    // construct and return the complement graph, word by word
+    public BitsetGraph complement() {
+        BitsetGraph complement = new BitsetGraph(numVertices);
+        long[] all = allVerticesMask();
+        for (int v = 0; v < numVertices; v++) {
+            for (int w = 0; w < numWords; w++) {
+                complement.rows[v][w] = ~rows[v][w] & all[w];
+            }
+            complement.rows[v][v >>> 6] &= ~(1L << v); // no loops
+        }
+        return complement;
+    }
+
+    // does there exist a matching that covers all max degree vertices?
+    // runs a bitset blossom search on the doubled graph used by
+    // Graph.HasDeltaHittingMatchingByReduction, without materializing its clique
+    public boolean hasDeltaHittingMatching() {
+        BitsetBlossom blossom = BitsetBlossom.deltaHittingGadget(this);
+        return blossom.getMaxMatchingSize() == numVertices;
+    }
+
+    // bitset with a bit set for every vertex of the graph
+    public long[] allVerticesMask() {
+        long[] mask = new long[numWords];
+        for (int w = 0; w < numWords; w++) mask[w] = -1L;
+        if ((numVertices & 63) != 0) {
+            mask[numWords - 1] = (1L << (numVertices & 63)) - 1;
+        }
+        return mask;
+    }
+
+    // convert to CSR representation
+    public CSRGraph toCSR() {
+        int[] offsets = new int[numVertices + 1];
+        for (int v = 0; v < numVertices; v++) offsets[v + 1] = offsets[v] + degree(v);
+        int[] targets = new int[offsets[numVertices]];
+        int[] weights = new int[offsets[numVertices]];
+        Arrays.fill(weights, 1);
+        for (int v = 0; v < numVertices; v++) {
+            int k = offsets[v];
+            for (int w = 0; w < numWords; w++) {
+                long word = rows[v][w];
+                while (word != 0) {
+                    targets[k++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+        }
+        return new CSRGraph(numVertices, offsets, targets, weights);
+    }
+
+    /* ACCESSOR METHODS */
+    // returns number of vertices in graph.
+    public int getNumVertices() {
+        return this.numVertices;
+    }
+
+    // returns number of longs per row
+    public int getNumWords() {
+        return this.numWords;
+    }
+
+    // returns neighborhood of v as a bitset (not a copy)
+    public long[] getRow(int v) {
+        return this.rows[v];
+    }
+
+    /* PRIVATE HELPER METHODS */
+
+    private static void setBit(long[] row, int i) {
+        row[i >>> 6] |= 1L << i;
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        BitsetGraph bg = new BitsetGraph(g);
+        System.out.println("Does this graph have a matching that covers " +
+            "all max degree vertices?");
+        System.out.println(bg.hasDeltaHittingMatching());
+        System.out.println("Complement has " + bg.complement().getNumEdges() + " edges.");
+    }
+}
@@ -26,14 +26,21 @@ public class Blossom {
         // System.out.println(g);
 
         /* FIND AND SET MAX MATCHING */
-        HashSet<Edge> augPath = new HashSet<Edge>();
-        do {
-            this.maxMatching = Graph.symDiff(this.maxMatching, augPath);
+        // forests have no blossoms: match leaves greedily in O(n) instead
+        if (ForestMatching.isForest(g.toCSR())) {
+            this.maxMatching = new ForestMatching(g.toCSR()).getMaxMatching();
             updateMatchedVertices();
-            augPath = getAugPath(this.graph, this.maxMatching);
-            // System.out.println("augPath:");
-            // System.out.println(augPath);
-        } while (augPath.size() != 0);
+        }
+        else {
+            HashSet<Edge> augPath = new HashSet<Edge>();
+            do {
+                this.maxMatching = Graph.symDiff(this.maxMatching, augPath);
+                updateMatchedVertices();
+                augPath = getAugPath(this.graph, this.maxMatching);
+                // System.out.println("augPath:");
+                // System.out.println(augPath);
+            } while (augPath.size() != 0);
+        }
 
         /* VALIDATE MAX MATCHING */
         if (!isValidMatching(this.maxMatching)) {
@@ -544,6 +551,12 @@ public class Blossom {
         return this.maxMatching.size();
     }
 
+    // returns the Gallai-Edmonds decomposition read off this matching, for
+    // questions like "is v covered by every max matching?"; O(n + m)
+    public GallaiEdmonds getGallaiEdmonds() {
+        return new GallaiEdmonds(this.graph.toCSR(), this.vertexMatches);
+    }
+
     /* VALIDATION METHODS */
     // checks if a set of edges is a valid matching (i.e., no repeated vertices)
     public static boolean isValidMatching(Set<Edge> m) {
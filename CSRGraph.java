@@ -0,0 +1,329 @@
+/*******************************************************************************
+* Compressed sparse row (CSR) representation of a simple, undirected graph.
+* The neighbors of vertex v are targets[offsets[v]] .. targets[offsets[v+1]-1],
+* sorted in increasing order, and weights[k] is the weight of the edge stored
+* at targets[k]. Every undirected edge is stored once in each direction
+* (an asymmetric Graph matrix is read as the union of both directions).
+*
+* Unlike Graph, this representation never materializes an n x n matrix, so it
+* is what the primitive (array based) engines run on for large inputs.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+import java.util.stream.IntStream;
+
+public class CSRGraph {
+    // rows with more entries than this are sorted in parallel when building
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+    private int numVertices;
+    private int[] offsets; // length numVertices + 1
+    private int[] targets; // length 2|E|
+    private int[] weights; // length 2|E|, parallel to targets
+
+    // structural properties, computed on first use. a CSRGraph is never
+    // modified, so racing threads at worst compute the same value twice
+    private volatile Boolean bipartite;
+    private volatile Boolean forest;
+    private volatile int[] componentStats; // {number of components, largest size}
+
+    // construct CSR graph from the adjacency lists of a Graph. Graph accepts
+    // asymmetric matrices, so the rows are built from the union of (i, j)
+    // and (j, i); an edge set in both directions keeps the weight of its
+    // lower triangle entry, as in Graph.getEdges
+    public CSRGraph(Graph g) {
+        this(fromGraph(g));
+    }
+
+    // copy of another CSR graph's arrays
+    private CSRGraph(CSRGraph g) {
+        this(g.numVertices, g.offsets, g.targets, g.weights);
+    }
+
+    // construct CSR graph directly from its arrays. rows must already be
+    // sorted and symmetric; no validation is done
+    public CSRGraph(int numVertices, int[] offsets, int[] targets, int[] weights) {
+        this.numVertices = numVertices;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    // build a CSR graph on n vertices from the first numEdges entries of
+    // edge lists (us[i], vs[i]) with weights ws[i] (ws may be null, meaning
+    // every edge has weight 1). each edge need only be listed in one
+    // direction; loops are dropped, and a repeated edge keeps the weight of
+    // its first occurrence in the lists
+    public static CSRGraph fromEdges(int n, int[] us, int[] vs, int[] ws, int numEdges) {
+        int[] degree = new int[n + 1];
+        for (int i = 0; i < numEdges; i++) {
+            int u = us[i];
+            int v = vs[i];
+            if (u < 0 || v < 0 || u >= n || v >= n) {
+                throw new IllegalArgumentException("Edge (" + u + ", " + v +
+                ") has an endpoint outside [0, " + n + ").");
+            }
+            if (u == v) continue;
+            degree[u + 1]++;
+            degree[v + 1]++;
+        }
+        for (int v = 0; v < n; v++) degree[v + 1] += degree[v];
+
+        // pack (target, edge index) into one long, so that one sort orders
+        // each row by target and repeats of an edge by their input order
+        long[] packed = new long[degree[n]];
+        int[] cursor = Arrays.copyOf(degree, n);
+        for (int i = 0; i < numEdges; i++) {
+            int u = us[i];
+            int v = vs[i];
+            if (u == v) continue;
+            packed[cursor[u]++] = ((long) v << 32) | i;
+            packed[cursor[v]++] = ((long) u << 32) | i;
+        }
+        final int[] start = degree;
+
+        // sort each row and count surviving (non-duplicate) entries
+        int[] kept = new int[n];
+        IntStream rows = IntStream.range(0, n);
+        if (packed.length > PARALLEL_SORT_THRESHOLD) rows = rows.parallel();
+        rows.forEach(v -> {
+            Arrays.sort(packed, start[v], start[v + 1]);
+            int count = 0;
+            for (int k = start[v]; k < start[v + 1]; k++) {
+                if (count > 0 && (packed[start[v] + count - 1] >>> 32) == (packed[k] >>> 32)) {
+                    continue;
+                }
+                packed[start[v] + count++] = packed[k];
+            }
+            kept[v] = count;
+        });
+
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) offsets[v + 1] = offsets[v] + kept[v];
+        int[] targets = new int[offsets[n]];
+        int[] weights = new int[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            for (int i = 0; i < kept[v]; i++) {
+                long entry = packed[start[v] + i];
+                targets[offsets[v] + i] = (int) (entry >>> 32);
+                weights[offsets[v] + i] = ws == null ? 1 : ws[(int) entry];
+            }
+        }
+        return new CSRGraph(n, offsets, targets, weights);
+    }
+
+    // symmetric CSR graph of g: its lower triangle entries are listed
+    // first, so fromEdges keeps their weights over the upper triangle's
+    private static CSRGraph fromGraph(Graph g) {
+        int n = g.getNumVertices();
+        ArrayList<HashSet<Edge>> vertices = g.getVertices();
+        int numEntries = 0;
+        for (int v = 0; v < n; v++) numEntries += vertices.get(v).size();
+        int[] us = new int[numEntries];
+        int[] vs = new int[numEntries];
+        int[] ws = new int[numEntries];
+        int numEdges = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int v = 0; v < n; v++) {
+                for (Edge e : vertices.get(v)) {
+                    if (pass == 0 ? e.v2() >= v : e.v2() <= v) continue;
+                    us[numEdges] = v;
+                    vs[numEdges] = e.v2();
+                    ws[numEdges] = e.getWeight();
+                    numEdges++;
+                }
+            }
+        }
+        return fromEdges(n, us, vs, ws, numEdges);
+    }
+
+    // returns number of vertices in graph.
+    public int getNumVertices() {
+        return this.numVertices;
+    }
+
+    // returns number of edges in graph.
+    public int getNumEdges() {
+        return this.targets.length / 2;
+    }
+
+    // returns total sum of degrees in graph.
+    public int getSumDegrees() {
+        return this.targets.length;
+    }
+
+    // returns degree of vertex v.
+    public int degree(int v) {
+        return this.offsets[v + 1] - this.offsets[v];
+    }
+
+    // returns max degree of the graph.
+    public int getMaxDegree() {
+        int maxDegree = 0;
+        for (int v = 0; v < numVertices; v++) {
+            maxDegree = Math.max(maxDegree, degree(v));
+        }
+        return maxDegree;
+    }
+
+    // is there an edge between u and v? O(log deg(u))
+    public boolean hasEdge(int u, int v) {
+        return indexOf(u, v) >= 0;
+    }
+
+    // weight of edge (u, v), or 0 if there is no such edge
+    public int getWeight(int u, int v) {
+        int k = indexOf(u, v);
+        return k >= 0 ? this.weights[k] : 0;
+    }
+
+    // gets bipartitions of the graph if bipartite. O/w, returns null.
+    // same labeling convention as Graph.getBipartitions; O(|V| + |E|)
+    public boolean[] getBipartitions() {
+        boolean[] visited = new boolean[numVertices];
+        boolean[] bipartitions = new boolean[numVertices];
+        int[] queue = new int[numVertices];
+
+        for (int i = 0; i < numVertices; i++) {
+            if (visited[i]) continue;
+            int head = 0;
+            int tail = 0;
+            bipartitions[i] = true;
+            visited[i] = true;
+            queue[tail++] = i;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    int nbr = targets[k];
+                    if (visited[nbr]) {
+                        if (bipartitions[nbr] == bipartitions[v]) return null;
+                        continue;
+                    }
+                    visited[nbr] = true;
+                    bipartitions[nbr] = !bipartitions[v];
+                    queue[tail++] = nbr;
+                }
+            }
+        }
+        return bipartitions;
+    }
+
+    // is the graph bipartite? cached
+    public boolean isBipartite() {
+        if (bipartite == null) bipartite = getBipartitions() != null;
+        return bipartite;
+    }
+
+    // is the graph acyclic? the same test ForestMatching applies to its
+    // input, so the two never disagree. cached
+    public boolean isForest() {
+        if (forest == null) forest = ForestMatching.isForest(this);
+        return forest;
+    }
+
+    // returns number of connected components (isolated vertices included). cached
+    public int getNumComponents() {
+        return componentStats()[0];
+    }
+
+    // returns number of vertices in the largest connected component. cached
+    public int getLargestComponentSize() {
+        return componentStats()[1];
+    }
+
+    // returns |E| / (n choose 2), or 0 for graphs with fewer than 2 vertices
+    public double getDensity() {
+        if (numVertices < 2) return 0;
+        return getNumEdges() / ((double) numVertices * (numVertices - 1) / 2);
+    }
+
+    // convert back into a (dense) Graph. only sensible for small graphs
+    public Graph toGraph() {
+        int[][] adjMatrix = new int[numVertices][numVertices];
+        for (int v = 0; v < numVertices; v++) {
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                adjMatrix[v][targets[k]] = weights[k] == 0 ? 1 : weights[k];
+            }
+        }
+        return new Graph(adjMatrix);
+    }
+
+    /* ACCESSOR METHODS */
+    // return row offsets; neighbors of v live in [offsets[v], offsets[v+1])
+    public int[] getOffsets() {
+        return this.offsets;
+    }
+
+    // return concatenated, sorted neighbor lists
+    public int[] getTargets() {
+        return this.targets;
+    }
+
+    // return edge weights, parallel to targets
+    public int[] getWeights() {
+        return this.weights;
+    }
+
+    /* PRIVATE HELPER METHODS */
+
+    // count components and find the largest by BFS; O(|V| + |E|)
+    private int[] componentStats() {
+        int[] stats = this.componentStats;
+        if (stats != null) return stats;
+        boolean[] visited = new boolean[numVertices];
+        int[] queue = new int[numVertices];
+        int numComponents = 0;
+        int largest = 0;
+        for (int i = 0; i < numVertices; i++) {
+            if (visited[i]) continue;
+            int head = 0;
+            int tail = 0;
+            visited[i] = true;
+            queue[tail++] = i;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    if (visited[targets[k]]) continue;
+                    visited[targets[k]] = true;
+                    queue[tail++] = targets[k];
+                }
+            }
+            numComponents++;
+            largest = Math.max(largest, tail);
+        }
+        stats = new int[] { numComponents, largest };
+        this.componentStats = stats;
+        return stats;
+    }
+
+    // position of v in the neighbor list of u, or negative if absent
+    private int indexOf(int u, int v) {
+        int k = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+        return k >= offsets[u] ? k : -1;
+    }
+
+    // string representation of graph
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        str.append("CSR graph: ").append(numVertices).append(" vertices, ")
+        .append(getNumEdges()).append(" edges\n");
+        for (int v = 0; v < numVertices; v++) {
+            str.append(v).append(":");
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                str.append(" ").append(targets[k]);
+            }
+            str.append("\n");
+        }
+        return str.toString();
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        CSRGraph csr = g.toCSR();
+        System.out.println(csr);
+        System.out.println("This graph has max degree " + csr.getMaxDegree());
+        System.out.println("Is this graph bipartite? " + (csr.getBipartitions() != null));
+    }
+}
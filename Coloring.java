@@ -0,0 +1,488 @@
+/*******************************************************************************
+* Vertex coloring: fast heuristics for upper bounds and an exact solver for
+* the chromatic number of small graphs.
+*   - dsatur: color the vertex with the most distinct neighbor colors next
+*     (ties by degree), with an indexed heap. O((n + m) log n)
+*   - jonesPlassmann: parallel rounds; every uncolored vertex whose random
+*     priority beats all of its uncolored neighbors takes the smallest free
+*     color. Such vertices are independent, so a round needs no locking
+*   - smallestLast: greedy in reverse degeneracy order (CoreDecomposition),
+*     at most degeneracy + 1 colors. O(n + m)
+*   - exact (constructor): DSatur branch and bound. A clique from MaxClique
+*     is colored first (a lower bound that also breaks color symmetry), the
+*     better of the DSatur and smallest-last colorings is the first upper
+*     bound, and the search stops early when the bounds meet. Both searches
+*     are limited by a count of search nodes (scaled by n), not by the
+*     clock, so the answer is the same on every run and under any load
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+import java.util.stream.IntStream;
+
+public class Coloring {
+
+    // search budget of Graph.chromaticNum, in vertex visits. a node of the
+    // coloring search scans all n vertices, so it is charged n; a node of
+    // the clique search scans up to n bitset words and is charged 64 n
+    public static final long DEFAULT_BUDGET = 1L << 26;
+    // graphs larger than this only get the heuristic coloring
+    private static final int MAX_EXACT_VERTICES = 1 << 11;
+    // adjacency entries scanned by greedyClique before it stops seeding
+    private static final long GREEDY_CLIQUE_WORK = 1L << 24;
+
+    private CSRGraph g;
+    private int n;
+    private int[] offsets;
+    private int[] targets;
+
+    private int[] bestColors;
+    private int bestNumColors;
+    private int lowerBound;
+    private boolean optimal;
+    private long elapsedNanos;
+
+    // search state
+    private int[] color;
+    private int[][] neighborColors; // neighborColors[v][c]: neighbors of v colored c
+    private int[] saturation; // distinct colors among neighbors
+    private long maxNodes;
+    private long nodes;
+    private boolean budgetSpent;
+
+    // color g with as few colors as possible, within budget vertex visits
+    // (budget / n coloring search nodes, budget / 64n clique search nodes);
+    // see isOptimal for whether the chromatic number was proven.
+    // deterministic: the result depends only on g and budget, never on timing
+    public Coloring(CSRGraph g, long budget) {
+        long start = System.nanoTime();
+        this.g = g;
+        this.n = g.getNumVertices();
+        this.offsets = g.getOffsets();
+        this.targets = g.getTargets();
+        this.maxNodes = Math.max(1, budget / Math.max(1, n));
+
+        this.bestColors = dsatur(g);
+        this.bestNumColors = numColors(bestColors);
+        int[] smallestLast = smallestLast(g);
+        if (numColors(smallestLast) < bestNumColors) {
+            this.bestColors = smallestLast;
+            this.bestNumColors = numColors(smallestLast);
+        }
+        int[] clique = greedyClique(g);
+        if (bestNumColors > clique.length && n <= MAX_EXACT_VERTICES) {
+            // any clique is a lower bound, so a budget-limited one is too
+            clique = new MaxClique(g, Math.max(1, budget / (64L * n))).getVertices();
+        }
+        this.lowerBound = clique.length;
+        if (bestNumColors > lowerBound && n <= MAX_EXACT_VERTICES) search(clique);
+        this.optimal = bestNumColors == lowerBound;
+        this.elapsedNanos = System.nanoTime() - start;
+    }
+
+    // color g with as few colors as possible, in the default budget
+    public Coloring(Graph g) {
+        this(g.toCSR(), DEFAULT_BUDGET);
+    }
+
+    /* HEURISTICS */
+
+    // DSatur coloring of g; colors are 0 .. k-1
+    public static int[] dsatur(CSRGraph g) {
+        int n = g.getNumVertices();
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int[] colors = new int[n];
+        Arrays.fill(colors, -1);
+        int[] saturation = new int[n];
+        BitSet[] seen = new BitSet[n]; // colors among the neighbors of v
+        BitSet used = new BitSet();
+
+        // indexed max-heap on (saturation, degree)
+        int[] heap = new int[n];
+        int[] pos = new int[n];
+        for (int v = 0; v < n; v++) {
+            heap[v] = v;
+            pos[v] = v;
+        }
+        for (int i = n / 2 - 1; i >= 0; i--) siftDown(heap, pos, n, i, saturation, g);
+
+        for (int size = n; size > 0; size--) {
+            int v = heap[0];
+            heap[0] = heap[size - 1];
+            pos[heap[0]] = 0;
+            siftDown(heap, pos, size - 1, 0, saturation, g);
+
+            int c = seen[v] == null ? 0 : seen[v].nextClearBit(0);
+            colors[v] = c;
+            used.set(c);
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int u = targets[k];
+                if (colors[u] != -1) continue;
+                if (seen[u] == null) seen[u] = new BitSet();
+                if (seen[u].get(c)) continue;
+                seen[u].set(c);
+                saturation[u]++;
+                siftUp(heap, pos, pos[u], saturation, g);
+            }
+        }
+        return colors;
+    }
+
+    // Jones-Plassmann coloring of g on the common fork-join pool, with
+    // random priorities drawn from seed; colors are 0 .. k-1
+    public static int[] jonesPlassmann(CSRGraph g, long seed) {
+        int n = g.getNumVertices();
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int[] colors = new int[n];
+        Arrays.fill(colors, -1);
+        long[] priority = new long[n];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int v = 0; v < n; v++) priority[v] = ((long) random.nextInt() << 32) | v;
+
+        int[] active = IntStream.range(0, n).toArray();
+        boolean[] chosen = new boolean[n];
+        while (active.length > 0) {
+            // pass 1: local maxima among uncolored vertices (read only)
+            final int[] round = active;
+            IntStream.range(0, round.length).parallel().forEach(i -> {
+                int v = round[i];
+                boolean max = true;
+                for (int k = offsets[v]; k < offsets[v + 1] && max; k++) {
+                    int u = targets[k];
+                    if (colors[u] == -1 && priority[u] > priority[v]) max = false;
+                }
+                chosen[v] = max;
+            });
+            // pass 2: color them; their neighbors' colors do not change now
+            IntStream.range(0, round.length).parallel().forEach(i -> {
+                int v = round[i];
+                if (!chosen[v]) return;
+                boolean[] taken = new boolean[g.degree(v) + 1];
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    int c = colors[targets[k]];
+                    if (c != -1 && c < taken.length) taken[c] = true;
+                }
+                int c = 0;
+                while (taken[c]) c++;
+                colors[v] = c;
+            });
+            active = IntStream.of(round).parallel().filter(v -> colors[v] == -1).toArray();
+        }
+        return colors;
+    }
+
+    // smallest-last coloring of g: greedy, in reverse degeneracy order, so
+    // each vertex sees at most degeneracy colored neighbors and at most
+    // degeneracy + 1 colors are used. O(n + m); colors are 0 .. k-1
+    public static int[] smallestLast(CSRGraph g) {
+        int n = g.getNumVertices();
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int[] order = new CoreDecomposition(g).getOrder();
+        int[] colors = new int[n];
+        Arrays.fill(colors, -1);
+        int[] taken = new int[g.getMaxDegree() + 2]; // taken[c] == v + 1 iff c is used next to v
+        for (int i = n - 1; i >= 0; i--) {
+            int v = order[i];
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int c = colors[targets[k]];
+                if (c != -1) taken[c] = v + 1;
+            }
+            int c = 0;
+            while (taken[c] == v + 1) c++;
+            colors[v] = c;
+        }
+        return colors;
+    }
+
+    // returns number of colors used by colors (largest color + 1)
+    public static int numColors(int[] colors) {
+        int max = -1;
+        for (int c : colors) max = Math.max(max, c);
+        return max + 1;
+    }
+
+    // is colors a proper coloring of g (every vertex colored, no edge with
+    // both ends the same color)? O(n + m)
+    public static boolean isProperColoring(CSRGraph g, int[] colors) {
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        for (int v = 0; v < g.getNumVertices(); v++) {
+            if (colors[v] < 0) return false;
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (colors[targets[k]] == colors[v]) return false;
+            }
+        }
+        return true;
+    }
+
+    // a large clique of g, grown greedily from each of the highest degree
+    // vertices by adding the candidate with the most candidate neighbors.
+    // the counts are kept up to date as candidates drop out, so a seed of
+    // degree d costs O(d^2) in all; no new seed is started once
+    // GREEDY_CLIQUE_WORK adjacency entries have been scanned
+    public static int[] greedyClique(CSRGraph g) {
+        int n = g.getNumVertices();
+        if (n == 0) return new int[0];
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        Integer[] byDegree = new Integer[n];
+        for (int v = 0; v < n; v++) byDegree[v] = v;
+        Arrays.sort(byDegree, (a, b) -> g.degree(b) - g.degree(a));
+
+        int[] best = { byDegree[0] };
+        int[] mark = new int[n]; // mark[u] == stamp iff u is a candidate
+        int[] count = new int[n]; // candidate neighbors of each candidate
+        int stamp = 0;
+        int[] candidates = new int[n];
+        int[] clique = new int[n];
+        long work = 0;
+        for (int s = 0; s < Math.min(n, 64) && work < GREEDY_CLIQUE_WORK; s++) {
+            int seed = byDegree[s];
+            if (g.degree(seed) + 1 <= best.length) break;
+            int size = 0;
+            clique[size++] = seed;
+            int numCandidates = 0;
+            stamp++;
+            for (int k = offsets[seed]; k < offsets[seed + 1]; k++) {
+                candidates[numCandidates++] = targets[k];
+                mark[targets[k]] = stamp;
+            }
+            for (int i = 0; i < numCandidates; i++) {
+                int u = candidates[i];
+                count[u] = 0;
+                work += g.degree(u);
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    if (mark[targets[k]] == stamp) count[u]++;
+                }
+            }
+            while (numCandidates > 0) {
+                // candidate adjacent to the most other candidates
+                int pick = candidates[0];
+                for (int i = 1; i < numCandidates; i++) {
+                    if (count[candidates[i]] > count[pick]) pick = candidates[i];
+                }
+                clique[size++] = pick;
+                // keep the candidates adjacent to pick
+                stamp++;
+                for (int k = offsets[pick]; k < offsets[pick + 1]; k++) {
+                    if (mark[targets[k]] == stamp - 1) mark[targets[k]] = stamp;
+                }
+                int kept = 0;
+                for (int i = 0; i < numCandidates; i++) {
+                    int u = candidates[i];
+                    if (mark[u] == stamp) {
+                        candidates[kept++] = u;
+                        continue;
+                    }
+                    work += g.degree(u);
+                    for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                        if (mark[targets[k]] == stamp) count[targets[k]]--;
+                    }
+                }
+                numCandidates = kept;
+            }
+            if (size > best.length) best = Arrays.copyOf(clique, size);
+        }
+        return best;
+    }
+
+    /* EXACT SEARCH */
+
+    // DSatur branch and bound, with the vertices of clique precolored
+    private void search(int[] clique) {
+        this.color = new int[n];
+        Arrays.fill(color, -1);
+        this.neighborColors = new int[n][bestNumColors];
+        this.saturation = new int[n];
+        for (int i = 0; i < clique.length; i++) assign(clique[i], i);
+        branch(clique.length, clique.length);
+        if (!budgetSpent) lowerBound = bestNumColors; // search was exhaustive
+    }
+
+    // extend the partial coloring of numColored vertices, which uses k colors
+    private void branch(int numColored, int k) {
+        if (++nodes > maxNodes) budgetSpent = true;
+        if (budgetSpent) return;
+        if (numColored == n) {
+            bestNumColors = k;
+            bestColors = Arrays.copyOf(color, n);
+            return;
+        }
+
+        // most saturated uncolored vertex, ties by degree
+        int v = -1;
+        for (int u = 0; u < n; u++) {
+            if (color[u] != -1) continue;
+            if (v == -1 || saturation[u] > saturation[v] ||
+                (saturation[u] == saturation[v] && g.degree(u) > g.degree(v))) {
+                v = u;
+            }
+        }
+
+        for (int c = 0; c < k && k < bestNumColors; c++) {
+            if (neighborColors[v][c] > 0) continue;
+            assign(v, c);
+            branch(numColored + 1, k);
+            unassign(v);
+            if (bestNumColors == lowerBound || budgetSpent) return;
+        }
+        if (k + 1 < bestNumColors) {
+            assign(v, k);
+            branch(numColored + 1, k + 1);
+            unassign(v);
+        }
+    }
+
+    private void assign(int v, int c) {
+        color[v] = c;
+        for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+            if (neighborColors[targets[k]][c]++ == 0) saturation[targets[k]]++;
+        }
+    }
+
+    private void unassign(int v) {
+        int c = color[v];
+        color[v] = -1;
+        for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+            if (--neighborColors[targets[k]][c] == 0) saturation[targets[k]]--;
+        }
+    }
+
+    /* HEAP HELPERS (dsatur) */
+
+    // does vertex a come before vertex b in DSatur order?
+    private static boolean before(int a, int b, int[] saturation, CSRGraph g) {
+        if (saturation[a] != saturation[b]) return saturation[a] > saturation[b];
+        return g.degree(a) > g.degree(b);
+    }
+
+    private static void siftUp(int[] heap, int[] pos, int i, int[] saturation, CSRGraph g) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!before(v, heap[parent], saturation, g)) break;
+            heap[i] = heap[parent];
+            pos[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        pos[v] = i;
+    }
+
+    private static void siftDown(int[] heap, int[] pos, int size, int i, int[] saturation, CSRGraph g) {
+        if (size == 0) return;
+        int v = heap[i];
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && before(heap[child + 1], heap[child], saturation, g)) child++;
+            if (!before(heap[child], v, saturation, g)) break;
+            heap[i] = heap[child];
+            pos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        pos[v] = i;
+    }
+
+    /* ACCESSOR METHODS */
+
+    // returns the best coloring found; colors are 0 .. getNumColors()-1
+    public int[] getColors() {
+        return Arrays.copyOf(this.bestColors, n);
+    }
+
+    // returns number of colors of the best coloring found
+    public int getNumColors() {
+        return this.bestNumColors;
+    }
+
+    // returns the best proven lower bound on the chromatic number
+    public int getLowerBound() {
+        return this.lowerBound;
+    }
+
+    // was the best coloring proven optimal within the budget?
+    public boolean isOptimal() {
+        return this.optimal;
+    }
+
+    // returns the chromatic number, or -1 if it was not proven within the
+    // budget
+    public int getChromaticNumber() {
+        return this.optimal ? this.bestNumColors : -1;
+    }
+
+    // returns number of coloring search nodes expanded
+    public long getNumNodes() {
+        return this.nodes;
+    }
+
+    // returns time spent, in milliseconds
+    public double getElapsedMillis() {
+        return this.elapsedNanos / 1e6;
+    }
+
+    // String representation of result
+    public String toString() {
+        StringBuilder colors = new StringBuilder();
+        for (int v = 0; v < n; v++) {
+            colors.append(v).append(": ").append(bestColors[v]).append("\n");
+        }
+        return "--------------------------------------------------\n" +
+        "COLORING RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Colors used: " + bestNumColors + (optimal ? " (optimal)" :
+        " (lower bound " + lowerBound + ")") + "\n\n" +
+        "Illustration:\n" +
+        colors +
+        "--------------------------------------------------";
+    }
+
+    // run time trials: DSatur, Jones-Plassmann and the exact solver on
+    // random graphs with n vertices and edge probability p
+    public static void runTimeTrials(int n, double p) {
+        CSRGraph g = RandomGraph.getSparseGnp(n, p, 1);
+
+        long start = System.nanoTime();
+        int[] ds = dsatur(g);
+        long dsTime = (System.nanoTime() - start) / 1000000;
+
+        start = System.nanoTime();
+        int[] jp = jonesPlassmann(g, 1);
+        long jpTime = (System.nanoTime() - start) / 1000000;
+
+        if (!isProperColoring(g, ds) || !isProperColoring(g, jp)) {
+            throw new IllegalStateException("programmer error; improper coloring.");
+        }
+        System.out.println("DSatur: " + numColors(ds) + " colors, " + dsTime + "ms");
+        System.out.println("Jones-Plassmann: " + numColors(jp) + " colors, " + jpTime + "ms");
+
+        start = System.nanoTime();
+        int[] sl = smallestLast(g);
+        long slTime = (System.nanoTime() - start) / 1000000;
+        if (!isProperColoring(g, sl)) {
+            throw new IllegalStateException("programmer error; improper coloring.");
+        }
+        System.out.println("Smallest-last: " + numColors(sl) + " colors, " + slTime + "ms");
+        if (n <= MAX_EXACT_VERTICES) {
+            Coloring exact = new Coloring(g, DEFAULT_BUDGET);
+            System.out.println("Exact: " + exact.getNumColors() + " colors" +
+            (exact.isOptimal() ? " (optimal), " : " (lower bound " +
+            exact.getLowerBound() + "), ") + String.format("%.1f", exact.getElapsedMillis()) + "ms");
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        if (args.length == 2) {
+            runTimeTrials(Integer.parseInt(args[0]), Double.parseDouble(args[1]));
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        Coloring coloring = new Coloring(g);
+        System.out.println(coloring);
+    }
+}
@@ -0,0 +1,335 @@
+/*******************************************************************************
+* Implicit view of the complement of a sparse graph g: u and v are adjacent
+* iff u != v and (u, v) is not an edge of g. Nothing of size n^2 is ever
+* built (unlike Graph.GetGraphComplement).
+*
+* Traversals keep the vertices not yet reached in a linked list. When a vertex
+* v is scanned, its g-neighbors are marked and the list is walked: unmarked
+* vertices are complement-neighbors and leave the list for good, while marked
+* ones are charged to a g-edge at v. So BFS and components cost O(n + m).
+*
+* Max matching: greedy (with the same list trick), then augmenting searches
+* from the free vertices. Each search first grows a plain alternating tree
+* through the list, which finds an augmenting path in O(n + m) nearly always;
+* only if that fails is a full blossom search run, at O(n) per outer vertex.
+* Free vertices left by the greedy pass are pairwise adjacent in g, so a
+* matching that leaves at most n mod 2 vertices free needs no search at all.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class ComplementView {
+
+    private CSRGraph g;
+    private int n;
+    private int[] offsets;
+    private int[] targets;
+
+    // scratch for traversals
+    private int[] mark; // mark[u] == stamp iff u is a g-neighbor of scanned v
+    private int stamp;
+    private int[] next; // linked list of vertices not yet reached
+    private int[] prev;
+    private int head;
+
+    // view the complement of g
+    public ComplementView(CSRGraph g) {
+        this.g = g;
+        this.n = g.getNumVertices();
+        this.offsets = g.getOffsets();
+        this.targets = g.getTargets();
+        this.mark = new int[n];
+        this.next = new int[n];
+        this.prev = new int[n];
+    }
+
+    // view the complement of g
+    public ComplementView(Graph g) {
+        this(g.toCSR());
+    }
+
+    // is (u, v) an edge of the complement?
+    public boolean hasEdge(int u, int v) {
+        return u != v && !g.hasEdge(u, v);
+    }
+
+    // returns degree of v in the complement
+    public int degree(int v) {
+        return n - 1 - g.degree(v);
+    }
+
+    // returns number of edges of the complement
+    public long getNumEdges() {
+        return (long) n * (n - 1) / 2 - g.getNumEdges();
+    }
+
+    // returns number of vertices
+    public int getNumVertices() {
+        return this.n;
+    }
+
+    // returns BFS distances in the complement from source (-1 if unreachable)
+    public int[] bfs(int source) {
+        int[] dist = new int[n];
+        Arrays.fill(dist, -1);
+        resetList();
+        bfsFrom(source, dist, new int[n], 0);
+        return dist;
+    }
+
+    // returns component label of every vertex in the complement; labels are
+    // 0 .. k-1 in order of smallest vertex
+    public int[] getComponents() {
+        int[] label = new int[n];
+        Arrays.fill(label, -1);
+        int[] queue = new int[n];
+        int[] dist = new int[n];
+        Arrays.fill(dist, -1);
+        resetList();
+        int numComponents = 0;
+        while (head != -1) {
+            int size = bfsFrom(head, dist, queue, 0);
+            for (int i = 0; i < size; i++) label[queue[i]] = numComponents;
+            numComponents++;
+        }
+        return label;
+    }
+
+    // returns number of connected components of the complement
+    public int getNumComponents() {
+        int max = -1;
+        for (int label : getComponents()) max = Math.max(max, label);
+        return max + 1;
+    }
+
+    // returns a maximum matching of the complement as a mate array (-1 if
+    // unmatched)
+    public int[] maxMatching() {
+        int[] match = new int[n];
+        Arrays.fill(match, -1);
+
+        /* GREEDY: match each free vertex to the first free non-neighbor */
+        resetList();
+        int numFree = 0;
+        while (head != -1) {
+            int v = head;
+            unlink(v);
+            markNeighbors(v);
+            int u = head;
+            while (u != -1 && mark[u] == stamp) u = next[u];
+            if (u == -1) {
+                numFree++;
+                continue;
+            }
+            unlink(u);
+            match[u] = v;
+            match[v] = u;
+        }
+        if (numFree <= n % 2) return match;
+
+        /* REPAIR: augment from each free vertex */
+        int[] p = new int[n];
+        int[] queue = new int[n];
+        FullSearch full = null;
+        for (int r = 0; r < n; r++) {
+            if (match[r] != -1) continue;
+            int free = treeSearch(r, match, p, queue);
+            if (free != -1) {
+                augment(free, match, p);
+                continue;
+            }
+            if (full == null) full = new FullSearch(match);
+            free = full.findPath(r);
+            if (free != -1) augment(free, match, full.p);
+        }
+        return match;
+    }
+
+    // returns a maximum matching of the complement as a set of edges
+    public HashSet<Edge> getMaxMatching() {
+        int[] match = maxMatching();
+        HashSet<Edge> matching = new HashSet<Edge>();
+        for (int v = 0; v < n; v++) {
+            if (match[v] > v) matching.add(new Edge(v, match[v], 1));
+        }
+        return matching;
+    }
+
+    /* PRIVATE HELPER METHODS */
+
+    // bfs from source over vertices still in the list, appending reached
+    // vertices to queue from position start; returns end of queue
+    private int bfsFrom(int source, int[] dist, int[] queue, int start) {
+        int tail = start;
+        unlink(source);
+        dist[source] = 0;
+        queue[tail++] = source;
+        for (int i = start; i < tail; i++) {
+            int v = queue[i];
+            markNeighbors(v);
+            int u = head;
+            while (u != -1) {
+                int following = next[u];
+                if (mark[u] != stamp) {
+                    unlink(u);
+                    dist[u] = dist[v] + 1;
+                    queue[tail++] = u;
+                }
+                u = following;
+            }
+        }
+        return tail;
+    }
+
+    // grow an alternating tree from free root without contracting blossoms,
+    // reaching each vertex at most once; returns a free vertex, or -1
+    private int treeSearch(int root, int[] match, int[] p, int[] queue) {
+        resetList();
+        unlink(root);
+        int tail = 0;
+        queue[tail++] = root;
+        for (int i = 0; i < tail; i++) {
+            int v = queue[i];
+            markNeighbors(v);
+            int u = head;
+            while (u != -1) {
+                int following = next[u];
+                if (mark[u] != stamp) {
+                    unlink(u);
+                    p[u] = v;
+                    if (match[u] == -1) return u;
+                    int mate = match[u]; // unreached, like u
+                    if (following == mate) following = next[mate];
+                    unlink(mate);
+                    queue[tail++] = mate;
+                }
+                u = following;
+            }
+        }
+        return -1;
+    }
+
+    // flip matched and unmatched edges along the path ending at free vertex v
+    private static void augment(int v, int[] match, int[] p) {
+        while (v != -1) {
+            int pv = p[v];
+            int ppv = match[pv];
+            match[v] = pv;
+            match[pv] = v;
+            v = ppv;
+        }
+    }
+
+    // stamp the g-neighbors of v
+    private void markNeighbors(int v) {
+        stamp++;
+        for (int k = offsets[v]; k < offsets[v + 1]; k++) mark[targets[k]] = stamp;
+    }
+
+    // put all vertices in the list
+    private void resetList() {
+        for (int v = 0; v < n; v++) {
+            next[v] = v + 1 < n ? v + 1 : -1;
+            prev[v] = v - 1;
+        }
+        head = n > 0 ? 0 : -1;
+    }
+
+    // remove v from the list; next[v] becomes -2
+    private void unlink(int v) {
+        if (prev[v] == -1) head = next[v];
+        else next[prev[v]] = next[v];
+        if (next[v] != -1) prev[next[v]] = prev[v];
+        next[v] = -2;
+    }
+
+    // Edmonds' blossom search on the complement; scanning an outer vertex
+    // walks all n vertices, skipping its g-neighbors
+    private class FullSearch {
+        private int[] match;
+        private int[] p = new int[n];
+        private int[] base = new int[n];
+        private boolean[] even = new boolean[n];
+        private boolean[] blossom = new boolean[n];
+        private boolean[] lcaMark = new boolean[n];
+        private int[] queue = new int[n];
+
+        FullSearch(int[] match) {
+            this.match = match;
+        }
+
+        int findPath(int root) {
+            Arrays.fill(p, -1);
+            Arrays.fill(even, false);
+            for (int i = 0; i < n; i++) base[i] = i;
+            int qh = 0;
+            int qt = 0;
+            even[root] = true;
+            queue[qt++] = root;
+            while (qh < qt) {
+                int v = queue[qh++];
+                markNeighbors(v);
+                for (int to = 0; to < n; to++) {
+                    if (to == v || mark[to] == stamp) continue;
+                    if (base[v] == base[to] || match[v] == to) continue;
+                    if (even[to]) {
+                        int curBase = lca(v, to);
+                        Arrays.fill(blossom, false);
+                        markPath(v, curBase, to);
+                        markPath(to, curBase, v);
+                        for (int i = 0; i < n; i++) {
+                            if (!blossom[base[i]]) continue;
+                            base[i] = curBase;
+                            if (!even[i]) {
+                                even[i] = true;
+                                queue[qt++] = i;
+                            }
+                        }
+                    }
+                    else if (p[to] == -1) {
+                        p[to] = v;
+                        if (match[to] == -1) return to;
+                        even[match[to]] = true;
+                        queue[qt++] = match[to];
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private int lca(int a, int b) {
+            Arrays.fill(lcaMark, false);
+            while (true) {
+                a = base[a];
+                lcaMark[a] = true;
+                if (match[a] == -1) break;
+                a = p[match[a]];
+            }
+            while (true) {
+                b = base[b];
+                if (lcaMark[b]) return b;
+                b = p[match[b]];
+            }
+        }
+
+        private void markPath(int v, int b, int child) {
+            while (base[v] != b) {
+                blossom[base[v]] = true;
+                blossom[base[match[v]]] = true;
+                p[v] = child;
+                child = match[v];
+                v = p[match[v]];
+            }
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        ComplementView complement = new ComplementView(g);
+        System.out.println("Complement has " + complement.getNumEdges() +
+            " edges and " + complement.getNumComponents() + " components.");
+        System.out.println("Max matching of complement: " + complement.getMaxMatching());
+    }
+}
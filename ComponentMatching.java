@@ -0,0 +1,311 @@
+/*******************************************************************************
+* Maximum cardinality matching, one connected component at a time. A max
+* matching of a graph is the union of max matchings of its components, so
+* components are labeled first (BFS), then solved independently:
+*   - trees: greedy leaf matching in reverse BFS order (ForestMatching)
+*   - cliques: pair vertices up in any order
+*   - everything else: SparseBlossom on the component's own CSRGraph
+* Components are fanned out over a fork-join pool, each task borrowing an
+* idle SparseBlossom engine of this run (about one per worker), and the
+* matchings are merged into one mate array. The engines are dropped with
+* the run, so no buffers stay attached to the pool's threads.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+public class ComponentMatching {
+
+    private enum Kind { SINGLETON, TREE, CLIQUE, GENERAL }
+
+    private CSRGraph g;
+    private int n;
+    private int[] mates;
+    private int matchingSize;
+
+    private int numComponents;
+    private int[] componentOf; // component label of each vertex
+    private int[] order; // vertices, grouped by component, in BFS order
+    private int[] componentStart; // component c is order[start[c] .. start[c+1])
+    private int[] parent; // BFS parent of each vertex, or -1 for roots
+    private int[] localId; // position of each vertex within its component
+    private Kind[] kinds;
+    private int[] kindCounts = new int[Kind.values().length];
+    private ConcurrentLinkedQueue<SparseBlossom> engines; // idle engines of this run
+
+    // find a maximum matching of g, on the common fork-join pool
+    public ComponentMatching(Graph g) {
+        this(g.toCSR());
+    }
+
+    // find a maximum matching of g, on the common fork-join pool
+    public ComponentMatching(CSRGraph g) {
+        this(g, ForkJoinPool.commonPool());
+    }
+
+    // find a maximum matching of g, solving components on pool
+    public ComponentMatching(CSRGraph g, ForkJoinPool pool) {
+        this.g = g;
+        this.n = g.getNumVertices();
+        this.mates = new int[n];
+        Arrays.fill(mates, -1);
+
+        labelComponents();
+        classifyComponents();
+        this.engines = new ConcurrentLinkedQueue<SparseBlossom>();
+
+        try {
+            pool.submit(() -> IntStream.range(0, numComponents).parallel()
+                .forEach(this::solveComponent)).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while matching components.", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Matching a component failed.", e.getCause());
+        }
+        this.engines = null;
+
+        for (int v = 0; v < n; v++) {
+            if (mates[v] > v) matchingSize++;
+        }
+    }
+
+    // label components by BFS; vertices of each component end up
+    // contiguous in order, each after its BFS parent
+    private void labelComponents() {
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        this.componentOf = new int[n];
+        this.order = new int[n];
+        this.parent = new int[n];
+        this.localId = new int[n];
+        Arrays.fill(componentOf, -1);
+
+        int[] starts = new int[n + 1];
+        int tail = 0;
+        for (int root = 0; root < n; root++) {
+            if (componentOf[root] != -1) continue;
+            int start = tail;
+            starts[numComponents] = start;
+            componentOf[root] = numComponents;
+            parent[root] = -1;
+            order[tail++] = root;
+            for (int i = start; i < tail; i++) {
+                int v = order[i];
+                localId[v] = i - start;
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    int u = targets[k];
+                    if (componentOf[u] != -1) continue;
+                    componentOf[u] = numComponents;
+                    parent[u] = v;
+                    order[tail++] = u;
+                }
+            }
+            numComponents++;
+        }
+        starts[numComponents] = n;
+        this.componentStart = Arrays.copyOf(starts, numComponents + 1);
+    }
+
+    // decide which fast path, if any, each component takes
+    private void classifyComponents() {
+        this.kinds = new Kind[numComponents];
+        for (int c = 0; c < numComponents; c++) {
+            long size = componentStart[c + 1] - componentStart[c];
+            long sumDegrees = 0;
+            for (int i = componentStart[c]; i < componentStart[c + 1]; i++) {
+                sumDegrees += g.degree(order[i]);
+            }
+            long edges = sumDegrees / 2;
+            if (size == 1) kinds[c] = Kind.SINGLETON;
+            else if (edges == size - 1) kinds[c] = Kind.TREE;
+            else if (edges == size * (size - 1) / 2) kinds[c] = Kind.CLIQUE;
+            else kinds[c] = Kind.GENERAL;
+            kindCounts[kinds[c].ordinal()]++;
+        }
+    }
+
+    // find a max matching of component c; touches only its own vertices
+    private void solveComponent(int c) {
+        int start = componentStart[c];
+        int end = componentStart[c + 1];
+        switch (kinds[c]) {
+            case SINGLETON:
+                return;
+            case TREE:
+                ForestMatching.matchTree(order, parent, start, end, mates);
+                return;
+            case CLIQUE:
+                for (int i = start; i + 1 < end; i += 2) {
+                    mates[order[i]] = order[i + 1];
+                    mates[order[i + 1]] = order[i];
+                }
+                return;
+            default:
+                SparseBlossom engine = engines.poll();
+                if (engine == null) engine = new SparseBlossom();
+                if (end - start == n) {
+                    engine.solve(g);
+                    for (int v = 0; v < n; v++) mates[v] = engine.getMate(v);
+                }
+                else {
+                    engine.solve(subgraph(start, end));
+                    for (int i = start; i < end; i++) {
+                        int mate = engine.getMate(i - start);
+                        mates[order[i]] = mate == -1 ? -1 : order[start + mate];
+                    }
+                }
+                engines.add(engine);
+        }
+    }
+
+    // CSR graph induced by the component at order[start .. end), in local ids
+    private CSRGraph subgraph(int start, int end) {
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int[] weights = g.getWeights();
+        int size = end - start;
+        int[] subOffsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            subOffsets[i + 1] = subOffsets[i] + g.degree(order[start + i]);
+        }
+        int[] subTargets = new int[subOffsets[size]];
+        int[] subWeights = new int[subOffsets[size]];
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) {
+            int v = order[start + i];
+            int deg = 0;
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                // sort by local id, carrying the slot along
+                packed[deg++] = ((long) localId[targets[k]] << 32) | (k - offsets[v]);
+            }
+            Arrays.sort(packed, 0, deg);
+            for (int j = 0; j < deg; j++) {
+                subTargets[subOffsets[i] + j] = (int) (packed[j] >>> 32);
+                subWeights[subOffsets[i] + j] = weights[offsets[v] + (int) packed[j]];
+            }
+        }
+        return new CSRGraph(size, subOffsets, subTargets, subWeights);
+    }
+
+    // returns the size of the max cardinality matching of this graph
+    public int getMaxMatchingSize() {
+        return this.matchingSize;
+    }
+
+    // returns mate of vertex v in the matching, or -1 if v is unmatched
+    public int getMate(int v) {
+        return this.mates[v];
+    }
+
+    // returns copy of the mate array
+    public int[] getMates() {
+        return Arrays.copyOf(this.mates, n);
+    }
+
+    // returns the edge set of the max cardinality matching of this graph
+    public HashSet<Edge> getMaxMatching() {
+        HashSet<Edge> matching = new HashSet<Edge>();
+        for (int v = 0; v < n; v++) {
+            if (mates[v] > v) matching.add(new Edge(v, mates[v], g.getWeight(v, mates[v])));
+        }
+        return matching;
+    }
+
+    // returns number of connected components
+    public int getNumComponents() {
+        return this.numComponents;
+    }
+
+    // returns component label of vertex v
+    public int getComponent(int v) {
+        return this.componentOf[v];
+    }
+
+    // returns number of components solved as trees
+    public int getNumTreeComponents() {
+        return kindCounts[Kind.TREE.ordinal()];
+    }
+
+    // returns number of components solved as cliques
+    public int getNumCliqueComponents() {
+        return kindCounts[Kind.CLIQUE.ordinal()];
+    }
+
+    // returns number of components solved by SparseBlossom
+    public int getNumGeneralComponents() {
+        return kindCounts[Kind.GENERAL.ordinal()];
+    }
+
+    // String representation of result
+    public String toString() {
+        StringBuilder edges = new StringBuilder();
+        for (Edge e : this.getMaxMatching()) {
+            edges.append(e).append("\n");
+        }
+        return "--------------------------------------------------\n" +
+        "COMPONENT MATCHING RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Max matching size:\n" + this.getMaxMatchingSize() + "\n\n" +
+        "Components: " + numComponents + " (" + getNumTreeComponents() +
+        " trees, " + getNumCliqueComponents() + " cliques, " +
+        getNumGeneralComponents() + " general)\n\n" +
+        "Illustration:\n" +
+        edges +
+        "--------------------------------------------------";
+    }
+
+    // run time trials on the disjoint union of numComponents random graphs
+    // with n vertices and m edges each: SparseBlossom on the whole graph vs
+    // component by component
+    public static void runTimeTrials(int numComponents, int n, int m) {
+        int[] us = new int[numComponents * m];
+        int[] vs = new int[numComponents * m];
+        int e = 0;
+        for (int c = 0; c < numComponents; c++) {
+            CSRGraph part = RandomGraph.getSparseGeneral(n, m, c);
+            int[] offsets = part.getOffsets();
+            int[] targets = part.getTargets();
+            for (int v = 0; v < n; v++) {
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    if (targets[k] < v) continue;
+                    us[e] = c * n + v;
+                    vs[e] = c * n + targets[k];
+                    e++;
+                }
+            }
+        }
+        CSRGraph g = CSRGraph.fromEdges(numComponents * n, us, vs, null, e);
+
+        long start = System.nanoTime();
+        SparseBlossom whole = new SparseBlossom(g);
+        long wholeTime = (System.nanoTime() - start) / 1000000;
+
+        start = System.nanoTime();
+        ComponentMatching byComponent = new ComponentMatching(g);
+        long componentTime = (System.nanoTime() - start) / 1000000;
+
+        if (whole.getMaxMatchingSize() != byComponent.getMaxMatchingSize()) {
+            throw new IllegalStateException("Whole graph and component matchings " +
+            "have different sizes.");
+        }
+        System.out.println("Whole graph: " + wholeTime + "ms, by component: " +
+        componentTime + "ms (" + byComponent.getNumComponents() + " components)");
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        if (args.length == 3) {
+            runTimeTrials(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+            Integer.parseInt(args[2]));
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        ComponentMatching cm = new ComponentMatching(g);
+        System.out.println(cm);
+    }
+}
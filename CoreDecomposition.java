@@ -0,0 +1,202 @@
+/*******************************************************************************
+* k-core decomposition of a CSRGraph: the core number of v is the largest k
+* such that v lies in a subgraph of minimum degree k, and the degeneracy is
+* the largest core number.
+*   - sequential (Batagelj-Zaversnik): repeatedly peel a vertex of minimum
+*     remaining degree, with vertices kept sorted by degree in one array of
+*     buckets, so each peel and each degree drop is O(1). O(n + m)
+*   - parallel: level synchronous peeling. At level k every remaining vertex
+*     of degree <= k is peeled at once; neighbors are decremented atomically
+*     and whoever drops to exactly k joins the next round of the same level.
+*     O(n + m) work per level plus a scan of the remaining vertices
+*
+* Either way, the peeling order is a degeneracy ordering: every vertex has
+* at most (degeneracy) neighbors later in the order. Coloring greedily in
+* reverse order uses at most degeneracy + 1 colors, and a clique of size s
+* needs a core of order s - 1, so core numbers bound both.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+public class CoreDecomposition {
+
+    private int n;
+    private int[] core; // core number of each vertex
+    private int[] order; // peeling order
+    private int degeneracy;
+    private long elapsedMillis;
+
+    // decompose g
+    public CoreDecomposition(Graph g) {
+        this(g.toCSR(), false);
+    }
+
+    // decompose g, sequentially
+    public CoreDecomposition(CSRGraph g) {
+        this(g, false);
+    }
+
+    // decompose g, peeling in parallel if asked
+    public CoreDecomposition(CSRGraph g, boolean parallel) {
+        long start = System.nanoTime();
+        this.n = g.getNumVertices();
+        this.core = new int[n];
+        this.order = new int[n];
+        if (parallel) peelInParallel(g);
+        else peel(g);
+        for (int v = 0; v < n; v++) degeneracy = Math.max(degeneracy, core[v]);
+        this.elapsedMillis = (System.nanoTime() - start) / 1000000;
+    }
+
+    /* SEQUENTIAL: BUCKET QUEUE */
+
+    private void peel(CSRGraph g) {
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int maxDegree = g.getMaxDegree();
+        int[] degree = new int[n];
+        for (int v = 0; v < n; v++) degree[v] = g.degree(v);
+
+        // vertices sorted by degree; start[d] is where degree d begins
+        int[] start = new int[maxDegree + 2];
+        for (int v = 0; v < n; v++) start[degree[v] + 1]++;
+        for (int d = 0; d <= maxDegree; d++) start[d + 1] += start[d];
+        int[] sorted = new int[n];
+        int[] pos = new int[n];
+        int[] fill = Arrays.copyOf(start, maxDegree + 1);
+        for (int v = 0; v < n; v++) {
+            pos[v] = fill[degree[v]]++;
+            sorted[pos[v]] = v;
+        }
+
+        for (int i = 0; i < n; i++) {
+            int v = sorted[i]; // minimum remaining degree
+            order[i] = v;
+            core[v] = degree[v];
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int u = targets[k];
+                if (pos[u] <= i || degree[u] <= degree[v]) continue;
+                // move u to the front of its bucket, then shrink it
+                int d = degree[u];
+                int first = Math.max(start[d], i + 1);
+                int swap = sorted[first];
+                sorted[pos[u]] = swap;
+                pos[swap] = pos[u];
+                sorted[first] = u;
+                pos[u] = first;
+                start[d] = first + 1;
+                degree[u]--;
+            }
+        }
+    }
+
+    /* PARALLEL: LEVEL SYNCHRONOUS PEELING */
+
+    private void peelInParallel(CSRGraph g) {
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        AtomicIntegerArray degree = new AtomicIntegerArray(n);
+        boolean[] peeled = new boolean[n];
+        for (int v = 0; v < n; v++) degree.set(v, g.degree(v));
+
+        int[] remaining = IntStream.range(0, n).toArray();
+        int numPeeled = 0;
+        int level = 0;
+        while (remaining.length > 0) {
+            // skip levels no remaining vertex is at
+            int min = IntStream.of(remaining).parallel().map(degree::get).min().getAsInt();
+            final int k = Math.max(level, min);
+            int[] frontier = IntStream.of(remaining).parallel()
+                .filter(v -> degree.get(v) <= k).toArray();
+            while (frontier.length > 0) {
+                for (int v : frontier) {
+                    peeled[v] = true;
+                    core[v] = k;
+                    order[numPeeled++] = v;
+                }
+                frontier = IntStream.of(frontier).parallel().flatMap(v -> {
+                    IntStream.Builder next = IntStream.builder();
+                    for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                        int u = targets[e];
+                        // crossing down to k happens once per vertex
+                        if (!peeled[u] && degree.decrementAndGet(u) == k) next.add(u);
+                    }
+                    return next.build();
+                }).toArray();
+            }
+            remaining = IntStream.of(remaining).parallel().filter(v -> !peeled[v]).toArray();
+            level = k + 1;
+        }
+    }
+
+    /* ACCESSOR METHODS */
+
+    // returns core number of v
+    public int getCoreNumber(int v) {
+        return this.core[v];
+    }
+
+    // returns core number of every vertex
+    public int[] getCoreNumbers() {
+        return Arrays.copyOf(this.core, n);
+    }
+
+    // returns largest core number
+    public int getDegeneracy() {
+        return this.degeneracy;
+    }
+
+    // returns peeling order: each vertex has at most getDegeneracy()
+    // neighbors after it
+    public int[] getOrder() {
+        return Arrays.copyOf(this.order, n);
+    }
+
+    // returns the vertices of the k-core (core number >= k), in increasing
+    // order
+    public int[] getCore(int k) {
+        return IntStream.range(0, n).filter(v -> core[v] >= k).toArray();
+    }
+
+    // returns the time taken by the decomposition
+    public long getElapsedMillis() {
+        return this.elapsedMillis;
+    }
+
+    // String representation of result
+    public String toString() {
+        return "--------------------------------------------------\n" +
+        "CORE DECOMPOSITION RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Degeneracy:\n" + degeneracy + "\n\n" +
+        "Core numbers:\n" + Arrays.toString(core) + "\n\n" +
+        "Peeling order:\n" + Arrays.toString(order) + "\n" +
+        "--------------------------------------------------";
+    }
+
+    // run time trials: sequential vs parallel peeling on a power law graph
+    // with n vertices and average degree avgDegree
+    public static void runTimeTrials(int n, double avgDegree) {
+        CSRGraph g = RandomGraph.getPowerLaw(n, avgDegree, 2.5, 1);
+        CoreDecomposition sequential = new CoreDecomposition(g, false);
+        CoreDecomposition parallel = new CoreDecomposition(g, true);
+        if (!Arrays.equals(sequential.core, parallel.core)) {
+            throw new IllegalStateException("programmer error; core numbers disagree.");
+        }
+        System.out.println("Degeneracy " + sequential.getDegeneracy() + "; sequential: " +
+        sequential.getElapsedMillis() + "ms, parallel: " + parallel.getElapsedMillis() + "ms");
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        if (args.length == 2) {
+            runTimeTrials(Integer.parseInt(args[0]), Double.parseDouble(args[1]));
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        System.out.println(new CoreDecomposition(g));
+    }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+* Decides whether a graph has a matching that covers every vertex of max
+* degree, directly on the graph. Graph.HasDeltaHittingMatching used to reduce
+* this to a perfect matching test on a doubled graph with a planted clique;
+* here we instead keep a matching that covers a growing set of max degree
+* vertices, and for each uncovered one r grow an alternating tree from r:
+*   - if the tree reaches a free vertex, augment; r is now covered
+*   - else if an outer vertex x != r has less than max degree, flip the even
+*     alternating path from r to x; r is now covered and only x loses its mate
+*   - else no such matching exists (any matching covering r and the covered
+*     vertices would differ from ours by an alternating path out of r, and
+*     that path must end at a free or non max degree outer vertex)
+*
+* Every bipartite graph has such a matching (one color class of a Delta
+* edge coloring), so the search only ever fails on non-bipartite graphs.
+* Time complexity: O(n * m) worst case, one tree search per max degree vertex
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class DeltaHittingMatching {
+
+    private SparseBlossom engine;
+    private boolean exists;
+    private int uncoverable = -1; // max degree vertex that could not be covered
+    private int maxDegree;
+
+    // search for a matching of g covering all its max degree vertices
+    public DeltaHittingMatching(Graph g) {
+        this(g.toCSR());
+    }
+
+    // search for a matching of g covering all its max degree vertices
+    public DeltaHittingMatching(CSRGraph g) {
+        int n = g.getNumVertices();
+        this.maxDegree = g.getMaxDegree();
+        this.engine = new SparseBlossom();
+        engine.load(g);
+        engine.greedyMatch();
+
+        this.exists = true;
+        for (int r = 0; r < n; r++) {
+            if (g.degree(r) != maxDegree || engine.getMate(r) != -1) continue;
+
+            int free = engine.findPath(r);
+            if (free != -1) {
+                engine.augment(free);
+                continue;
+            }
+
+            int swap = -1;
+            for (int i = 0; i < engine.treeSize(); i++) {
+                int x = engine.treeVertex(i);
+                if (x != r && engine.isOuter(x) && g.degree(x) < maxDegree) {
+                    swap = x;
+                    break;
+                }
+            }
+            if (swap == -1) {
+                this.exists = false;
+                this.uncoverable = r;
+                break;
+            }
+            engine.flipEvenPath(swap);
+        }
+    }
+
+    // does there exist a matching that covers all max degree vertices?
+    public boolean exists() {
+        return this.exists;
+    }
+
+    // returns a max degree vertex that no such matching can cover together
+    // with the ones covered before it, or -1 if the matching exists
+    public int getUncoverableVertex() {
+        return this.uncoverable;
+    }
+
+    // returns the max degree of the graph
+    public int getMaxDegree() {
+        return this.maxDegree;
+    }
+
+    // returns mate of vertex v in the matching, or -1 if v is unmatched
+    public int getMate(int v) {
+        return engine.getMate(v);
+    }
+
+    // returns the edge set of the matching; if exists(), it covers all max
+    // degree vertices, else it covers those before getUncoverableVertex()
+    public HashSet<Edge> getMatching() {
+        return engine.getMaxMatching();
+    }
+
+    // String representation of result
+    public String toString() {
+        StringBuilder edges = new StringBuilder();
+        for (Edge e : this.getMatching()) {
+            edges.append(e).append("\n");
+        }
+        return "--------------------------------------------------\n" +
+        "DELTA HITTING MATCHING RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Max degree:\n" + this.maxDegree + "\n\n" +
+        "Covers all max degree vertices:\n" + this.exists +
+        (this.exists ? "" : " (vertex " + this.uncoverable + ")") + "\n\n" +
+        "Illustration:\n" +
+        edges +
+        "--------------------------------------------------";
+    }
+
+    // fixtures for runSanityChecks, relative to the testing directory.
+    // easy3 and mom_and_dad have asymmetric matrices
+    private static final String[] FIXTURES = {
+        "nonbipartite/easy.txt", "nonbipartite/easy2.txt", "nonbipartite/easy3.txt",
+        "nonbipartite/medium.txt", "nonbipartite/hard.txt", "petersen.txt",
+        "mom_and_dad.txt", "k3_3.txt", "trees/5-star.txt"
+    };
+
+    // run sanity checks on the fixtures under testingDir: every matching
+    // found must be a matching of the graph covering all max degree vertices
+    public static void runSanityChecks(String testingDir) {
+        for (String fixture : FIXTURES) {
+            CSRGraph g = new Graph(Graph.loadMatrixFromFile(testingDir + "/" + fixture)).toCSR();
+            DeltaHittingMatching dhm = new DeltaHittingMatching(g);
+            for (int v = 0; v < g.getNumVertices(); v++) {
+                int mate = dhm.getMate(v);
+                if (mate != -1 && (dhm.getMate(mate) != v || !g.hasEdge(v, mate))) {
+                    throw new IllegalStateException("programmer error; invalid matching on " +
+                    fixture + ".");
+                }
+                if (dhm.exists && mate == -1 && g.degree(v) == dhm.maxDegree) {
+                    throw new IllegalStateException("programmer error; max degree vertex " +
+                    v + " uncovered on " + fixture + ".");
+                }
+            }
+            System.out.println(fixture + ": " + dhm.exists);
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        if (args.length == 1) {
+            runSanityChecks(args[0]);
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        DeltaHittingMatching dhm = new DeltaHittingMatching(g);
+        System.out.println(dhm);
+    }
+}
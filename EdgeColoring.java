@@ -0,0 +1,377 @@
+/*******************************************************************************
+* Proper edge coloring on the original sparse graph, never on the line graph
+* (which has sum of deg(v) choose 2 edges). Each color class is a matching,
+* e.g. one round of pairing sessions.
+*   - bipartite graphs: Delta colors, which is optimal (Konig). Each round
+*     takes a matching that covers every vertex of max degree
+*     (DeltaHittingMatching; one always exists in a bipartite graph) as the
+*     next color and removes it, so the max degree drops by one per round.
+*     O(Delta * (m + matching time))
+*   - everything else: Misra-Gries, at most Delta + 1 colors. Each edge is
+*     colored by building a fan at one endpoint, flipping one alternating
+*     two-color path and rotating the fan. The fan grows along the smallest
+*     color free at its last vertex, one table lookup per step, so hubs are
+*     never rescanned. O(m * n) worst case (the paths), far less on sparse
+*     and power law graphs
+*
+* Edges are numbered as in LineGraph. Which neighbor of v is reached by the
+* edge of color c is kept in a hash table keyed by (v, c), and the colors
+* used at v are kept in a bitset over 0 .. deg(v) (the smallest free color
+* is always in that range), so no table of size n * Delta is ever
+* allocated: the bitsets take m / 32 + n words in all.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class EdgeColoring {
+
+    private CSRGraph g;
+    private int n;
+    private LineGraph ids; // edge numbering of g
+    private int[] colors; // color of each edge
+    private int numColors;
+    private int maxDegree;
+    private boolean bipartite;
+
+    // Misra-Gries state
+    private ColorTable at; // at.get(v, c): neighbor of v along color c, or -1
+    private long[] used; // bit c of v's words: color c <= deg(v) is used at v
+    private int[] usedStart; // v's words are used[usedStart[v] .. usedStart[v + 1])
+    private int[] firstFree; // every color below firstFree[v] is used at v
+    private int[] fan;
+    private int[] fanMark;
+    private int fanStamp;
+    private int[] pathU;
+    private int[] pathV;
+
+    // edge color g with Delta colors if bipartite, else at most Delta + 1
+    public EdgeColoring(Graph g) {
+        this(g.toCSR());
+    }
+
+    // edge color g with Delta colors if bipartite, else at most Delta + 1
+    public EdgeColoring(CSRGraph g) {
+        this.g = g;
+        this.n = g.getNumVertices();
+        this.ids = new LineGraph(g);
+        this.maxDegree = g.getMaxDegree();
+        this.colors = new int[ids.getNumEdges()];
+        Arrays.fill(colors, -1);
+        this.bipartite = g.isBipartite();
+        if (bipartite) colorByMatchings();
+        else misraGries();
+        this.numColors = 0;
+        for (int c : colors) numColors = Math.max(numColors, c + 1);
+    }
+
+    /* BIPARTITE: ONE DELTA-HITTING MATCHING PER COLOR */
+
+    private void colorByMatchings() {
+        int m = ids.getNumEdges();
+        int[] us = new int[m];
+        int[] vs = new int[m];
+        for (int c = 0; c < maxDegree; c++) {
+            // graph of the edges not yet colored
+            int count = 0;
+            for (int e = 0; e < m; e++) {
+                if (colors[e] != -1) continue;
+                us[count] = ids.getEndpoint1(e);
+                vs[count] = ids.getEndpoint2(e);
+                count++;
+            }
+            if (count == 0) break;
+            DeltaHittingMatching matching = new DeltaHittingMatching(
+                CSRGraph.fromEdges(n, us, vs, null, count));
+            if (!matching.exists()) {
+                throw new IllegalStateException("programmer error;" +
+                " bipartite graph without a delta-hitting matching.");
+            }
+            for (int v = 0; v < n; v++) {
+                int mate = matching.getMate(v);
+                if (mate > v) colors[ids.getEdgeId(v, mate)] = c;
+            }
+        }
+    }
+
+    /* GENERAL: MISRA-GRIES */
+
+    private void misraGries() {
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        this.at = new ColorTable(2 * ids.getNumEdges());
+        this.usedStart = new int[n + 1];
+        for (int v = 0; v < n; v++) usedStart[v + 1] = usedStart[v] + (g.degree(v) >>> 6) + 1;
+        this.used = new long[usedStart[n]];
+        this.firstFree = new int[n];
+        this.fan = new int[maxDegree + 1];
+        this.fanMark = new int[n];
+        this.pathU = new int[n];
+        this.pathV = new int[n];
+        for (int u = 0; u < n; u++) {
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                if (targets[k] > u) colorEdge(u, targets[k]);
+            }
+        }
+    }
+
+    // color the uncolored edge (u, v), recoloring others but keeping every
+    // color below Delta + 1
+    private void colorEdge(int u, int v) {
+        // fan at u starting with v: each next edge (u, f) has the smallest
+        // color free at the previous fan vertex. it stops once that color d
+        // is free at u or leads back into the fan, which is all the
+        // rotation below needs of a maximal fan
+        fanStamp++;
+        int fanSize = 0;
+        fan[fanSize++] = v;
+        fanMark[v] = fanStamp;
+        int d = freeColor(v);
+        int f;
+        while ((f = at.get(u, d)) != -1 && fanMark[f] != fanStamp) {
+            fan[fanSize++] = f;
+            fanMark[f] = fanStamp;
+            d = freeColor(f);
+        }
+
+        // c free at u, d free at the end of the fan; flip the c/d path at u
+        // so that d is free at u
+        int c = freeColor(u);
+        if (c != d) invertPath(u, c, d);
+
+        // first w in the fan with d free such that fan[0 .. w] is still a fan
+        int w = 0;
+        while (w + 1 < fanSize && at.get(fan[w], d) != -1) {
+            int next = colors[ids.getEdgeId(u, fan[w + 1])];
+            if (next == -1 || at.get(fan[w], next) != -1) break; // fan broken
+            w++;
+        }
+        if (at.get(fan[w], d) != -1) {
+            throw new IllegalStateException("programmer error; no fan vertex with d free.");
+        }
+
+        // rotate fan[0 .. w]: each edge takes the color of the next one
+        for (int i = 0; i < w; i++) {
+            int next = colors[ids.getEdgeId(u, fan[i + 1])];
+            setColor(u, fan[i + 1], -1);
+            setColor(u, fan[i], next);
+        }
+        setColor(u, fan[w], d);
+    }
+
+    // smallest color not on any edge at v. O(deg(v) / 64), usually O(1)
+    private int freeColor(int v) {
+        int base = usedStart[v];
+        // bits below firstFree[v] are all set, so whole words can be scanned
+        for (int w = base + (firstFree[v] >>> 6); ; w++) {
+            if (used[w] != -1L) {
+                firstFree[v] = ((w - base) << 6) + Long.numberOfTrailingZeros(~used[w]);
+                return firstFree[v];
+            }
+        }
+    }
+
+    // swap colors c and d on the maximal path from u whose edges alternate
+    // d, c, d, ... (c is free at u)
+    private void invertPath(int u, int c, int d) {
+        int length = 0;
+        int x = u;
+        int col = d;
+        int y;
+        while ((y = at.get(x, col)) != -1) {
+            pathU[length] = x;
+            pathV[length] = y;
+            length++;
+            x = y;
+            col = col == d ? c : d;
+        }
+        // remove every path edge before recoloring, so no entry is clobbered
+        for (int i = 0; i < length; i++) setColor(pathU[i], pathV[i], -1);
+        for (int i = 0; i < length; i++) setColor(pathU[i], pathV[i], i % 2 == 0 ? c : d);
+    }
+
+    // set the color of edge (x, y), -1 to uncolor it
+    private void setColor(int x, int y, int c) {
+        int e = ids.getEdgeId(x, y);
+        if (colors[e] != -1) {
+            at.remove(x, colors[e]);
+            at.remove(y, colors[e]);
+            markUsed(x, colors[e], false);
+            markUsed(y, colors[e], false);
+        }
+        colors[e] = c;
+        if (c != -1) {
+            at.put(x, c, y);
+            at.put(y, c, x);
+            markUsed(x, c, true);
+            markUsed(y, c, true);
+        }
+    }
+
+    // record that color c is (or is no longer) used at v; colors above
+    // deg(v) are never the smallest free one, so they are not tracked
+    private void markUsed(int v, int c, boolean isUsed) {
+        if (c > g.degree(v)) return;
+        int w = usedStart[v] + (c >>> 6);
+        if (isUsed) used[w] |= 1L << c;
+        else {
+            used[w] &= ~(1L << c);
+            firstFree[v] = Math.min(firstFree[v], c);
+        }
+    }
+
+    // open addressing map from (vertex, color) to vertex, with linear
+    // probing and backward shift deletion
+    private static class ColorTable {
+        private long[] keys;
+        private int[] values;
+        private int mask;
+
+        ColorTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, 2 * expected) - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(keys, -1);
+        }
+
+        int get(int v, int c) {
+            long key = ((long) v << 32) | c;
+            for (int i = slot(key); keys[i] != -1; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            return -1;
+        }
+
+        void put(int v, int c, int u) {
+            long key = ((long) v << 32) | c;
+            int i = slot(key);
+            while (keys[i] != -1 && keys[i] != key) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = u;
+        }
+
+        void remove(int v, int c) {
+            long key = ((long) v << 32) | c;
+            int i = slot(key);
+            while (keys[i] != key) {
+                if (keys[i] == -1) return;
+                i = (i + 1) & mask;
+            }
+            // shift later entries of the probe run back into the hole
+            int hole = i;
+            for (int j = (i + 1) & mask; keys[j] != -1; j = (j + 1) & mask) {
+                int home = slot(keys[j]);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = -1;
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & mask;
+        }
+    }
+
+    /* ACCESSOR METHODS */
+
+    // returns color of edge (u, v), or -1 if there is no such edge
+    public int getColor(int u, int v) {
+        int e = ids.getEdgeId(u, v);
+        return e == -1 ? -1 : colors[e];
+    }
+
+    // returns color of every edge, indexed by LineGraph edge id
+    public int[] getColors() {
+        return Arrays.copyOf(this.colors, colors.length);
+    }
+
+    // returns the edges of color c, a matching
+    public HashSet<Edge> getColorClass(int c) {
+        HashSet<Edge> matching = new HashSet<Edge>();
+        for (int e = 0; e < colors.length; e++) {
+            if (colors[e] == c) matching.add(ids.getEdge(e));
+        }
+        return matching;
+    }
+
+    // returns number of colors used
+    public int getNumColors() {
+        return this.numColors;
+    }
+
+    // returns max degree of the graph, a lower bound on the number of colors
+    public int getMaxDegree() {
+        return this.maxDegree;
+    }
+
+    // is every edge colored, with no two edges at a vertex sharing a color?
+    // O(n + m)
+    public boolean isProper() {
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int[] seen = new int[numColors];
+        Arrays.fill(seen, -1);
+        for (int v = 0; v < n; v++) {
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int c = getColor(v, targets[k]);
+                if (c < 0 || seen[c] == v) return false;
+                seen[c] = v;
+            }
+        }
+        return true;
+    }
+
+    // String representation of result
+    public String toString() {
+        StringBuilder classes = new StringBuilder();
+        for (int c = 0; c < numColors; c++) {
+            classes.append(c).append(": ").append(getColorClass(c)).append("\n");
+        }
+        return "--------------------------------------------------\n" +
+        "EDGE COLORING RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Colors used: " + numColors + " (max degree " + maxDegree + ", " +
+        (bipartite ? "bipartite" : "Misra-Gries") + ")\n\n" +
+        "Color classes:\n" +
+        classes +
+        "--------------------------------------------------";
+    }
+
+    // run time trials: Misra-Gries on a uniform random graph and on a power
+    // law graph (with hubs), both with n vertices and average degree
+    // avgDegree
+    public static void runTimeTrials(int n, double avgDegree) {
+        CSRGraph[] graphs = {
+            RandomGraph.getSparseGeneral(n, (long) (n * avgDegree / 2), 1),
+            RandomGraph.getPowerLaw(n, avgDegree, 2.5, 1)
+        };
+        String[] names = { "Uniform", "Power law" };
+        for (int i = 0; i < graphs.length; i++) {
+            long start = System.nanoTime();
+            EdgeColoring coloring = new EdgeColoring(graphs[i]);
+            long time = (System.nanoTime() - start) / 1000000;
+            if (!coloring.isProper() || coloring.getNumColors() > coloring.getMaxDegree() + 1) {
+                throw new IllegalStateException("programmer error; improper edge coloring.");
+            }
+            System.out.println(names[i] + ": " + graphs[i].getNumEdges() + " edges, " +
+            coloring.getNumColors() + " colors (max degree " + coloring.getMaxDegree() + "), " +
+            time + "ms");
+        }
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        if (args.length == 2) {
+            runTimeTrials(Integer.parseInt(args[0]), Double.parseDouble(args[1]));
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        EdgeColoring coloring = new EdgeColoring(g);
+        System.out.println(coloring);
+    }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+* Maximum cardinality matching of a forest in O(n). Every leaf is matched to
+* its parent in some max matching, so visiting vertices in reverse BFS order
+* (leaves first) and matching each free vertex to its free parent is optimal;
+* no augmenting paths or blossoms are needed.
+*
+* Blossom and ComponentMatching dispatch here when their input is acyclic.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class ForestMatching {
+
+    private CSRGraph g;
+    private int n;
+    private int[] mates;
+    private int matchingSize;
+
+    // find a maximum matching of forest g
+    public ForestMatching(Graph g) {
+        this(g.toCSR());
+    }
+
+    // find a maximum matching of forest g
+    public ForestMatching(CSRGraph g) {
+        this.g = g;
+        this.n = g.getNumVertices();
+        int[] order = new int[n];
+        int[] parent = new int[n];
+        if (!bfsForest(g, order, parent)) {
+            throw new IllegalArgumentException("Input must be the" +
+            " adjacency matrix of a forest.");
+        }
+
+        this.mates = new int[n];
+        Arrays.fill(mates, -1);
+        matchTree(order, parent, 0, n, mates);
+        for (int v = 0; v < n; v++) {
+            if (mates[v] > v) matchingSize++;
+        }
+    }
+
+    // is g acyclic? O(n + m)
+    public static boolean isForest(CSRGraph g) {
+        int n = g.getNumVertices();
+        return g.getNumEdges() < n && bfsForest(g, new int[n], new int[n]);
+    }
+
+    // match the trees laid out in order[start .. end), where every vertex
+    // comes after its parent (parent -1 for roots), leaves first
+    static void matchTree(int[] order, int[] parent, int start, int end, int[] mates) {
+        for (int i = end - 1; i >= start; i--) {
+            int v = order[i];
+            int p = parent[v];
+            if (p != -1 && mates[v] == -1 && mates[p] == -1) {
+                mates[v] = p;
+                mates[p] = v;
+            }
+        }
+    }
+
+    // fill order with a BFS order of every component of g and parent with
+    // the BFS parents; returns false if some non-tree edge was found
+    private static boolean bfsForest(CSRGraph g, int[] order, int[] parent) {
+        int n = g.getNumVertices();
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        boolean[] visited = new boolean[n];
+        int tail = 0;
+        for (int root = 0; root < n; root++) {
+            if (visited[root]) continue;
+            visited[root] = true;
+            parent[root] = -1;
+            int head = tail;
+            order[tail++] = root;
+            while (head < tail) {
+                int v = order[head++];
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    int u = targets[k];
+                    if (u == parent[v]) continue;
+                    if (visited[u]) return false; // cycle
+                    visited[u] = true;
+                    parent[u] = v;
+                    order[tail++] = u;
+                }
+            }
+        }
+        return true;
+    }
+
+    // returns the size of the max cardinality matching of this forest
+    public int getMaxMatchingSize() {
+        return this.matchingSize;
+    }
+
+    // returns mate of vertex v in the matching, or -1 if v is unmatched
+    public int getMate(int v) {
+        return this.mates[v];
+    }
+
+    // returns copy of the mate array
+    public int[] getMates() {
+        return Arrays.copyOf(this.mates, n);
+    }
+
+    // returns the edge set of the max cardinality matching of this forest
+    public HashSet<Edge> getMaxMatching() {
+        HashSet<Edge> matching = new HashSet<Edge>();
+        for (int v = 0; v < n; v++) {
+            if (mates[v] > v) matching.add(new Edge(v, mates[v], g.getWeight(v, mates[v])));
+        }
+        return matching;
+    }
+
+    // String representation of result
+    public String toString() {
+        StringBuilder edges = new StringBuilder();
+        for (Edge e : this.getMaxMatching()) {
+            edges.append(e).append("\n");
+        }
+        return "--------------------------------------------------\n" +
+        "FOREST MATCHING RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Max matching size:\n" + this.getMaxMatchingSize() + "\n\n" +
+        "Illustration:\n" +
+        edges +
+        "--------------------------------------------------";
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        ForestMatching fm = new ForestMatching(g);
+        System.out.println(fm);
+    }
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+* Gallai-Edmonds decomposition of a graph, from one maximum matching:
+*   D: vertices missed by some maximum matching
+*   A: neighbors of D outside D
+*   C: everything else
+* Every maximum matching matches A into distinct components of D, leaves each
+* component of D (which is factor-critical) with one vertex unmatched or
+* matched into A, and matches C perfectly within itself.
+*
+* D and A are the outer and inner vertices of one alternating forest grown
+* from all free vertices at once, so the decomposition costs O(n + m) on top
+* of the matching. From it:
+*   - v is covered by every maximum matching iff v is not in D
+*   - an edge inside D or between A and D is in some maximum matching; an
+*     edge touching A and not D never is; an edge inside C is iff it lies on
+*     an even alternating cycle, found by one search of C (O(n + m))
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class GallaiEdmonds {
+
+    public enum Part { D, A, C }
+
+    private CSRGraph g;
+    private int n;
+    private int[] mates;
+    private int matchingSize;
+    private Part[] parts;
+    private int[] partSizes = new int[Part.values().length];
+    private int[] componentOf; // component of G[D] holding v, or -1 if v not in D
+    private int numDComponents;
+
+    // decompose g
+    public GallaiEdmonds(Graph g) {
+        this(g.toCSR());
+    }
+
+    // decompose g
+    public GallaiEdmonds(CSRGraph g) {
+        this(g, new SparseBlossom(g).getMates());
+    }
+
+    // decompose g, given a maximum matching of g as a mate array (-1 if
+    // unmatched). throws IllegalArgumentException if mates is not maximum
+    public GallaiEdmonds(CSRGraph g, int[] mates) {
+        this.g = g;
+        this.n = g.getNumVertices();
+        this.mates = Arrays.copyOf(mates, n);
+        for (int v = 0; v < n; v++) {
+            if (mates[v] > v) matchingSize++;
+        }
+
+        SparseBlossom forest = new SparseBlossom();
+        forest.load(g);
+        forest.setMatching(this.mates);
+        try {
+            forest.growForest();
+        }
+        catch (IllegalStateException e) {
+            throw new IllegalArgumentException("Matching is not maximum.", e);
+        }
+        this.parts = new Part[n];
+        for (int v = 0; v < n; v++) {
+            if (forest.isOuter(v)) parts[v] = Part.D;
+            else if (forest.isInner(v)) parts[v] = Part.A;
+            else parts[v] = Part.C;
+            partSizes[parts[v].ordinal()]++;
+        }
+        labelDComponents();
+
+        // Tutte-Berge: n - 2|M| == odd components of G - A - |A|, and every
+        // component of G - A is odd iff it lies in D
+        if (numDComponents - partSizes[Part.A.ordinal()] != n - 2 * matchingSize) {
+            throw new IllegalArgumentException("Matching is not maximum.");
+        }
+    }
+
+    // label the components of G[D] by BFS
+    private void labelDComponents() {
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        this.componentOf = new int[n];
+        Arrays.fill(componentOf, -1);
+        int[] queue = new int[n];
+        for (int root = 0; root < n; root++) {
+            if (parts[root] != Part.D || componentOf[root] != -1) continue;
+            int head = 0;
+            int tail = 0;
+            componentOf[root] = numDComponents;
+            queue[tail++] = root;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    int u = targets[k];
+                    if (parts[u] != Part.D || componentOf[u] != -1) continue;
+                    componentOf[u] = numDComponents;
+                    queue[tail++] = u;
+                }
+            }
+            numDComponents++;
+        }
+    }
+
+    // returns the part (D, A or C) of vertex v
+    public Part getPart(int v) {
+        return this.parts[v];
+    }
+
+    // returns the vertices of part, in increasing order
+    public int[] getVertices(Part part) {
+        int[] vertices = new int[partSizes[part.ordinal()]];
+        int i = 0;
+        for (int v = 0; v < n; v++) {
+            if (parts[v] == part) vertices[i++] = v;
+        }
+        return vertices;
+    }
+
+    // returns number of vertices in part
+    public int getSize(Part part) {
+        return partSizes[part.ordinal()];
+    }
+
+    // is v matched in every maximum matching? O(1)
+    public boolean isAlwaysCovered(int v) {
+        return parts[v] != Part.D;
+    }
+
+    // is (u, v) an edge of some maximum matching? O(1), except for unmatched
+    // edges inside C, which take one alternating search, O(n + m)
+    public boolean isAllowed(int u, int v) {
+        if (!g.hasEdge(u, v)) return false;
+        if (mates[u] == v) return true;
+        if (parts[u] == Part.D || parts[v] == Part.D) return true;
+        if (parts[u] == Part.A || parts[v] == Part.A) return false;
+        return onEvenAlternatingCycle(u, v);
+    }
+
+    // for an unmatched edge (u, v) inside C: swap (u, v) into the matching,
+    // freeing the old mates of u and v, and search for an alternating path
+    // between them within C - u - v. it exists iff the swap can be repaired
+    private boolean onEvenAlternatingCycle(int u, int v) {
+        int mu = mates[u];
+        int mv = mates[v];
+        int[] swapped = Arrays.copyOf(mates, n);
+        swapped[u] = v;
+        swapped[v] = u;
+        swapped[mu] = -1;
+        swapped[mv] = -1;
+
+        SparseBlossom search = new SparseBlossom();
+        search.load(g);
+        search.setMatching(swapped);
+        for (int x = 0; x < n; x++) {
+            if (parts[x] != Part.C) search.exclude(x);
+        }
+        search.exclude(u);
+        search.exclude(v);
+        return search.findPath(mu) == mv;
+    }
+
+    // returns component of G[D] holding v (0 .. k-1), or -1 if v is not in D
+    public int getDComponent(int v) {
+        return this.componentOf[v];
+    }
+
+    // returns number of components of G[D]
+    public int getNumDComponents() {
+        return this.numDComponents;
+    }
+
+    // returns number of vertices missed by every maximum matching:
+    // (components of D) - |A|
+    public int getDeficiency() {
+        return n - 2 * matchingSize;
+    }
+
+    // returns the size of the max cardinality matching of this graph
+    public int getMaxMatchingSize() {
+        return this.matchingSize;
+    }
+
+    // returns mate of vertex v in the matching, or -1 if v is unmatched
+    public int getMate(int v) {
+        return this.mates[v];
+    }
+
+    // String representation of result
+    public String toString() {
+        return "--------------------------------------------------\n" +
+        "GALLAI-EDMONDS DECOMPOSITION:\n" +
+        "--------------------------------------------------\n" +
+        "Max matching size:\n" + this.getMaxMatchingSize() + "\n\n" +
+        "D (missed by some max matching): " + Arrays.toString(getVertices(Part.D)) + "\n" +
+        "A (neighbors of D): " + Arrays.toString(getVertices(Part.A)) + "\n" +
+        "C (perfectly matched): " + Arrays.toString(getVertices(Part.C)) + "\n" +
+        "Components of D: " + numDComponents + "\n" +
+        "--------------------------------------------------";
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        GallaiEdmonds ge = new GallaiEdmonds(g);
+        System.out.println(ge);
+    }
+}
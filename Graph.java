@@ -6,6 +6,8 @@
 * Author: Jesse Goodman
 ******************************************************************************/
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.*;
 
@@ -15,6 +17,9 @@ public class Graph {
     private HashSet<Edge> edges;
     private int numVertices; // number of vertices in this graph
     private boolean[] touched; // keeps track of which vertices have been hit by current alg
+    private volatile CSRGraph csr; // lazily built primitive representation
+    private volatile int[] componentLabels; // lazily built, read only, for existsPath
+    private volatile AllPairsIndex allPairs; // built on request by getAllPairsIndex
 
     // construct graph, given 2D int adjacency matrix
     public Graph(int[][] adjMatrix) {
@@ -49,10 +54,16 @@ public class Graph {
     }
 
     // Checks if there exists a matching that covers all max degree vertices.
+    // Searches for it directly on this graph; see DeltaHittingMatching
+    public boolean HasDeltaHittingMatching() {
+        return new DeltaHittingMatching(this.toCSR()).exists();
+    }
+
+    // Same as HasDeltaHittingMatching, by reduction to perfect matching.
     // Double number of vertices in graph; make all new vertices pw complete
     // make all new vertices complete to all non-max degree vertices
     // Exists a PM in this new graph IFF exists a delta hitting matching in original
-    public boolean HasDeltaHittingMatching() {
+    public boolean HasDeltaHittingMatchingByReduction() {
         int maxDegree = this.getMaxDegree();
 
         // new graph has double length
@@ -113,7 +124,9 @@ public class Graph {
         return complement;
     }
 
-    // construct and return adjacency matrix of line graph
+    // construct and return adjacency matrix of line graph. needs m^2 ints;
+    // use GetSparseLineGraph (or LineGraph directly) on large graphs, and
+    // EdgeColoring to edge color without any line graph
     public int[][] GetLineGraph() {
         int numEdges = this.edges.size();
         int[][] lineGraph = new int[numEdges][numEdges];
@@ -148,6 +161,12 @@ public class Graph {
         return lineGraph;
     }
 
+    // construct and return line graph in CSR form; vertex i of the line
+    // graph is edge i in the numbering of LineGraph
+    public CSRGraph GetSparseLineGraph() {
+        return new LineGraph(this.toCSR()).build();
+    }
+
     // convert adj matrix representation of a graph into the adjacency lists
     // representation of a graph
     public static LinkedList<HashSet<Edge>> adjMatrixToAdjLists(int[][] adjMatrix) {
@@ -281,16 +300,25 @@ public class Graph {
     // vertices indexed by an int, 0 thru numVertices - 1.
     // first row of input adj matrix is vertex 0,
     // second row of input adj matrix is vertex 1, etc.
+    // components are labeled on the first call (O(|V| + |E|)); every call
+    // after that is an O(1) lookup. the labels are never written again, so
+    // concurrent callers are safe. for one-off queries on a large graph,
+    // Reachability stops as soon as a path is found.
+    // throws IllegalArgumentException if either vertex does not exist
     public boolean existsPath(int u, int v) {
         int numVertices = this.getNumVertices();
-
-        if (u >= numVertices || v >= numVertices) {
-            System.out.println("One of the input vertices does not exist.");
-            return false;
+        for (int vertex : new int[] {u, v}) {
+            if (vertex < 0 || vertex >= numVertices) {
+                throw new IllegalArgumentException("Vertex " + vertex + " does not exist.");
+            }
         }
-
-        DFS dfs = new DFS(this, u);
-        return dfs.getVisited()[v];
+        int[] labels = this.componentLabels;
+        if (labels == null) {
+            // racing callers build equal arrays; any of them may be kept
+            labels = Reachability.componentLabels(this.toCSR());
+            this.componentLabels = labels;
+        }
+        return labels[u] == labels[v];
     }
 
     // does this graph have a cycle?
@@ -406,9 +434,27 @@ public class Graph {
 
     // what is the chromatic number of this graph?
     // that is, what is the minimum amount of colors we can use to
-    // color this graph?
+    // color this graph? returns -1 if it is not proven within
+    // Coloring.DEFAULT_BUDGET (see Coloring for the best
+    // found). deterministic: the same graph always gives the same answer
     public int chromaticNum() {
-        return -1;
+        return new Coloring(this.toCSR(), Coloring.DEFAULT_BUDGET).getChromaticNumber();
+    }
+
+    // returns core number of every vertex: the largest k such that the
+    // vertex lies in a subgraph of minimum degree k. O(|V| + |E|)
+    public int[] getCoreNumbers() {
+        return new CoreDecomposition(this.toCSR()).getCoreNumbers();
+    }
+
+    // returns degeneracy of the graph (largest core number)
+    public int getDegeneracy() {
+        return new CoreDecomposition(this.toCSR()).getDegeneracy();
+    }
+
+    // returns number of triangles in the graph
+    public long getNumTriangles() {
+        return new TriangleCount(this.toCSR()).getNumTriangles();
     }
 
     /* ACCESSOR METHODS */
@@ -427,6 +473,29 @@ public class Graph {
         return this.edges;
     }
 
+    // return compressed sparse row representation of graph; built on first
+    // call and cached, since the graph itself never changes
+    public CSRGraph toCSR() {
+        CSRGraph built = this.csr;
+        if (built == null) {
+            // racing callers build equal graphs; any of them may be kept
+            built = new CSRGraph(this);
+            this.csr = built;
+        }
+        return built;
+    }
+
+    // returns all pairs reachability and distance index, building it on the
+    // first call. at most AllPairsIndex.MAX_VERTICES vertices
+    public AllPairsIndex getAllPairsIndex() {
+        AllPairsIndex index = this.allPairs;
+        if (index == null) {
+            index = new AllPairsIndex(this.toCSR());
+            this.allPairs = index;
+        }
+        return index;
+    }
+
     /* PRIVATE HELPER METHODS */
 
     // does the connected component connected to vertex u have a cycle?
@@ -480,11 +549,26 @@ public class Graph {
 
     // loads and returns 2d adjacency matrix from standard in
     public static int[][] loadMatrixFromStdIn() {
+        return loadMatrix(new Scanner(System.in));
+    }
+
+    // loads and returns 2d adjacency matrix from a file in the same format
+    // as standard in (e.g. the fixtures under testing/)
+    public static int[][] loadMatrixFromFile(String filename) {
+        try (Scanner scanner = new Scanner(new File(filename))) {
+            return loadMatrix(scanner);
+        }
+        catch (FileNotFoundException e) {
+            throw new IllegalArgumentException("No such file: " + filename + ".", e);
+        }
+    }
+
+    // loads and returns 2d adjacency matrix, one row per line
+    private static int[][] loadMatrix(Scanner stdin) {
         int[][] adjMatrix;
         String stdinLine;
         String[] stdinArray;
         int dim;
-        Scanner stdin = new Scanner(System.in);
 
         // need this to get dimension of adj matrix that we're going to fill
         stdinLine = stdin.nextLine();
@@ -0,0 +1,189 @@
+/*******************************************************************************
+* Hungarian (Jonker-Volgenant style) algorithm for finding maximum weight
+* matchings in bipartite graphs. Edge weights are read from the adjacency
+* matrix of the graph; non-positive entries are never worth matching.
+* Time complexity: O(s^2 * t), where s <= t are the sizes of the bipartitions.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class Hungarian {
+
+    private static final long INF = Long.MAX_VALUE / 4;
+
+    private HashSet<Edge> maxMatching;
+    private long maxMatchingWeight;
+    private int[] vertexMatches; // vertexMatches[v] is mate of v, or -1
+    private Graph g;
+
+    // run the hungarian algorithm for maximum weight matchings in a
+    // bipartite graph
+    public Hungarian(Graph g) {
+        this.g = g;
+        boolean[] partitions = g.getBipartitions();
+        if (partitions == null) {
+            throw new IllegalArgumentException("Input must be the" +
+            " adjacency matrix of a bipartite graph.");
+        }
+
+        int n = g.getNumVertices();
+        int[][] adjMatrix = g.getAdjMatrix();
+
+        // label vertices of each partition 0, 1, 2, ...
+        int numBoys = 0;
+        for (int i = 0; i < n; i++) {
+            if (partitions[i]) numBoys++;
+        }
+        int[] boys = new int[numBoys];
+        int[] girls = new int[n - numBoys];
+        for (int i = 0, b = 0, c = 0; i < n; i++) {
+            if (partitions[i]) boys[b++] = i;
+            else girls[c++] = i;
+        }
+
+        // rows must be the smaller side so every row can be assigned
+        int[] rows = boys.length <= girls.length ? boys : girls;
+        int[] cols = boys.length <= girls.length ? girls : boys;
+        int s = rows.length;
+        int t = cols.length;
+
+        // cost of assigning row i to col j; missing edges cost 0, so
+        // assigning a row along one just means leaving it unmatched
+        long[][] cost = new long[s][t];
+        for (int i = 0; i < s; i++) {
+            for (int j = 0; j < t; j++) {
+                int w = adjMatrix[rows[i]][cols[j]];
+                cost[i][j] = w > 0 ? -w : 0;
+            }
+        }
+
+        int[] rowOfCol = solve(cost, s, t);
+
+        this.vertexMatches = new int[n];
+        Arrays.fill(this.vertexMatches, -1);
+        this.maxMatching = new HashSet<Edge>();
+        this.maxMatchingWeight = 0;
+        for (int j = 0; j < t; j++) {
+            int i = rowOfCol[j];
+            if (i == -1 || cost[i][j] == 0) continue;
+            int u = rows[i];
+            int v = cols[j];
+            this.vertexMatches[u] = v;
+            this.vertexMatches[v] = u;
+            this.maxMatching.add(new Edge(u, v, adjMatrix[u][v]));
+            this.maxMatchingWeight += adjMatrix[u][v];
+        }
+
+        if (!HopcroftKarp.isValidMatching(this.maxMatching)) {
+            throw new IllegalStateException("programmer error;" +
+            " somehow created invalid matching.");
+        }
+    }
+
+    // solve the rectangular (s <= t) min cost assignment problem using
+    // shortest augmenting paths and row/column potentials.
+    // returns, for each column, the row assigned to it (or -1)
+    private static int[] solve(long[][] cost, int s, int t) {
+        // 1-indexed internally; row/col 0 is a sentinel
+        long[] rowPot = new long[s + 1];
+        long[] colPot = new long[t + 1];
+        int[] rowOfCol = new int[t + 1];
+        int[] way = new int[t + 1];
+        long[] minSlack = new long[t + 1];
+        boolean[] used = new boolean[t + 1];
+
+        for (int i = 1; i <= s; i++) {
+            rowOfCol[0] = i;
+            int j0 = 0;
+            Arrays.fill(minSlack, INF);
+            Arrays.fill(used, false);
+
+            // grow a shortest path tree until we reach a free column
+            do {
+                used[j0] = true;
+                int i0 = rowOfCol[j0];
+                long delta = INF;
+                int j1 = 0;
+                for (int j = 1; j <= t; j++) {
+                    if (used[j]) continue;
+                    long cur = cost[i0 - 1][j - 1] - rowPot[i0] - colPot[j];
+                    if (cur < minSlack[j]) {
+                        minSlack[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minSlack[j] < delta) {
+                        delta = minSlack[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= t; j++) {
+                    if (used[j]) {
+                        rowPot[rowOfCol[j]] += delta;
+                        colPot[j] -= delta;
+                    }
+                    else {
+                        minSlack[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (rowOfCol[j0] != 0);
+
+            // flip the augmenting path back to the sentinel
+            do {
+                int j1 = way[j0];
+                rowOfCol[j0] = rowOfCol[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] result = new int[t];
+        for (int j = 1; j <= t; j++) {
+            result[j - 1] = rowOfCol[j] - 1;
+        }
+        return result;
+    }
+
+    // returns the edge set of the max weight matching of this graph
+    public HashSet<Edge> getMaxMatching() {
+        return this.maxMatching;
+    }
+
+    // returns the number of edges in the max weight matching of this graph
+    public int getMaxMatchingSize() {
+        return this.maxMatching.size();
+    }
+
+    // returns the total weight of the max weight matching of this graph
+    public long getMaxMatchingWeight() {
+        return this.maxMatchingWeight;
+    }
+
+    // returns mate of vertex v in the matching, or -1 if v is unmatched
+    public int getMate(int v) {
+        return this.vertexMatches[v];
+    }
+
+    // String representation of result
+    public String toString() {
+        StringBuilder edges = new StringBuilder();
+        for (Edge e : this.getMaxMatching()) {
+            edges.append(e).append("\n");
+        }
+        return "--------------------------------------------------\n" +
+        "HUNGARIAN RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Max matching weight:\n" + this.getMaxMatchingWeight() + "\n\n" +
+        "Max matching size:\n" + this.getMaxMatchingSize() + "\n\n" +
+        "Illustration:\n" +
+        edges +
+        "--------------------------------------------------";
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        Hungarian hungarian = new Hungarian(g);
+        System.out.println(hungarian);
+    }
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+* Sparse line graph builder. The line graph L(G) has a vertex for every edge
+* of G, and two of them are adjacent iff the edges share an endpoint, so it
+* has sum over v of deg(v) choose 2 edges. Graph.GetLineGraph writes these
+* into an m x m matrix; here they go straight into a CSRGraph, or are
+* streamed to a callback without being stored at all.
+*
+* Edges of G are numbered 0 .. m-1 in order of (smaller endpoint, larger
+* endpoint), through a primitive map from CSR slots to edge ids. With that
+* numbering the edges at each vertex are already sorted by id, so each row of
+* L(G) is the merge of the rows of the edge's two endpoints.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+import java.util.stream.IntStream;
+
+public class LineGraph {
+
+    // receives the edges of a line graph, one at a time
+    public interface EdgeSink {
+        void edge(int e, int f);
+    }
+
+    private CSRGraph g;
+    private int numEdges;
+    private int[] slotEdge; // edge id of every slot of g's targets array
+    private int[] edgeU; // smaller endpoint of each edge
+    private int[] edgeV; // larger endpoint of each edge
+
+    // number the edges of g
+    public LineGraph(CSRGraph g) {
+        this.g = g;
+        int n = g.getNumVertices();
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+
+        // edges (v, x) with x > v are numbered in row v
+        int[] firstId = new int[n + 1];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            int upper = 0;
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (targets[k] > v) upper++;
+            }
+            firstId[v + 1] = upper;
+        });
+        for (int v = 0; v < n; v++) firstId[v + 1] += firstId[v];
+        this.numEdges = firstId[n];
+
+        this.slotEdge = new int[offsets[n]];
+        this.edgeU = new int[numEdges];
+        this.edgeV = new int[numEdges];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            int id = firstId[v];
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (targets[k] < v) continue;
+                slotEdge[k] = id;
+                edgeU[id] = v;
+                edgeV[id] = targets[k];
+                id++;
+            }
+        });
+        // lower slots take the id of their mirror slot
+        IntStream.range(0, n).parallel().forEach(v -> {
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int u = targets[k];
+                if (u > v) break;
+                int mirror = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+                slotEdge[k] = slotEdge[mirror];
+            }
+        });
+    }
+
+    // number the edges of g
+    public LineGraph(Graph g) {
+        this(g.toCSR());
+    }
+
+    // build the line graph in CSR form; rows are filled in parallel.
+    // throws IllegalArgumentException if it has more than 2^31 - 1 arcs
+    public CSRGraph build() {
+        int[] offsets = g.getOffsets();
+        long arcs = 2 * getNumLineEdges();
+        if (arcs > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Line graph has " + arcs / 2 +
+            " edges, too many for a CSRGraph; use forEachLineEdge instead.");
+        }
+
+        int[] lineOffsets = new int[numEdges + 1];
+        for (int e = 0; e < numEdges; e++) {
+            lineOffsets[e + 1] = lineOffsets[e] + g.degree(edgeU[e]) + g.degree(edgeV[e]) - 2;
+        }
+        int[] lineTargets = new int[(int) arcs];
+        int[] lineWeights = new int[(int) arcs];
+        Arrays.fill(lineWeights, 1);
+
+        IntStream.range(0, numEdges).parallel().forEach(e -> {
+            // merge the two sorted rows of e's endpoints, skipping e itself
+            int a = offsets[edgeU[e]];
+            int aEnd = offsets[edgeU[e] + 1];
+            int b = offsets[edgeV[e]];
+            int bEnd = offsets[edgeV[e] + 1];
+            int out = lineOffsets[e];
+            while (a < aEnd || b < bEnd) {
+                int f;
+                if (b == bEnd || (a < aEnd && slotEdge[a] < slotEdge[b])) f = slotEdge[a++];
+                else f = slotEdge[b++];
+                if (f != e) lineTargets[out++] = f;
+            }
+        });
+        return new CSRGraph(numEdges, lineOffsets, lineTargets, lineWeights);
+    }
+
+    // pass every edge (e, f) of the line graph, e < f, to sink without
+    // storing the line graph; edges are produced one vertex of g at a time
+    public void forEachLineEdge(EdgeSink sink) {
+        int[] offsets = g.getOffsets();
+        for (int v = 0; v < g.getNumVertices(); v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                for (int j = i + 1; j < offsets[v + 1]; j++) {
+                    sink.edge(slotEdge[i], slotEdge[j]);
+                }
+            }
+        }
+    }
+
+    // returns the number of edges of the line graph
+    public long getNumLineEdges() {
+        long sum = 0;
+        for (int v = 0; v < g.getNumVertices(); v++) {
+            long deg = g.degree(v);
+            sum += deg * (deg - 1) / 2;
+        }
+        return sum;
+    }
+
+    // returns id of edge (u, v) of g, or -1 if there is no such edge
+    public int getEdgeId(int u, int v) {
+        int[] offsets = g.getOffsets();
+        int k = Arrays.binarySearch(g.getTargets(), offsets[u], offsets[u + 1], v);
+        return k < 0 ? -1 : slotEdge[k];
+    }
+
+    // returns id of the edge in slot k of g's targets array. O(1)
+    public int getEdgeIdAt(int k) {
+        return this.slotEdge[k];
+    }
+
+    // returns the edge of g with id e
+    public Edge getEdge(int e) {
+        return new Edge(edgeU[e], edgeV[e], g.getWeight(edgeU[e], edgeV[e]));
+    }
+
+    // returns the number of edges of g (vertices of the line graph)
+    public int getNumEdges() {
+        return this.numEdges;
+    }
+
+    // returns smaller endpoint of edge e
+    public int getEndpoint1(int e) {
+        return this.edgeU[e];
+    }
+
+    // returns larger endpoint of edge e
+    public int getEndpoint2(int e) {
+        return this.edgeV[e];
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        LineGraph lg = new LineGraph(g);
+        System.out.println("Line graph has " + lg.getNumEdges() + " vertices and " +
+            lg.getNumLineEdges() + " edges.");
+        System.out.println(lg.build());
+    }
+}
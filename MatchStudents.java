@@ -4,6 +4,8 @@ import java.util.Scanner;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.TreeMap;
 
 public class MatchStudents {
 
@@ -72,45 +74,57 @@ public class MatchStudents {
         return students;
     }
 
-    // returns whether s1 and s2 are eligible to be partners;
-    // currently, s1, s2 are eligible partners iff they are in
-    // different sections, but the same grade
-    private static boolean eligiblePartners(Student s1, Student s2) {
-        return (s1.grade == s2.grade) && (s1.section != s2.section);
-    }
+    // returns a max matching of eligible partners; students are eligible
+    // iff they are in the same grade, but different sections. within a
+    // grade, that is the complement of the sparse "know each other" graph
+    // (one clique per section), so match each grade on an implicit
+    // ComplementView instead of building an n^2 matrix
+    private static HashSet<Edge> matchStudents(ArrayList<Student> students) {
+        // group student ids by grade, then by section
+        TreeMap<Integer, LinkedHashMap<String, ArrayList<Integer>>> grades =
+            new TreeMap<Integer, LinkedHashMap<String, ArrayList<Integer>>>();
+        for (int i = 0; i < students.size(); i++) {
+            Student s = students.get(i);
+            grades.computeIfAbsent(s.grade, k -> new LinkedHashMap<String, ArrayList<Integer>>())
+                .computeIfAbsent(s.section, k -> new ArrayList<Integer>()).add(i);
+        }
 
-    // create graph from students such that each node is a student,,
-    // and there is an edge between two students if they don't know
-    // one another (i.e., if they're in different classes)
-    private static Graph createStudentGraph(ArrayList<Student> students) {
-        // each student will be labeled by his/her position in the array list
-        // brute force addition of edges, because data is very small
-        // and only O(n^2) time, anyway
-        int numStudents = students.size();
-        int[][] adjMatrix = new int[numStudents][numStudents];
-
-        // should produce symmetric matrix. don't really need to do all
-        // iterations, but more clear what's happening and it doesn't
-        // add to asymptotic time complexity
-        for (int i = 0; i < numStudents; i++) {
-            Student currStudent = students.get(i);
-            for (int j = 0; j < numStudents; j++) {
-                if (i == j) continue;
-                Student classmate = students.get(j);
-                if (eligiblePartners(currStudent, classmate)) {
-                    adjMatrix[i][j] = 1;
+        HashSet<Edge> matching = new HashSet<Edge>();
+        for (LinkedHashMap<String, ArrayList<Integer>> sections : grades.values()) {
+            // local ids 0 .. size-1, section by section
+            ArrayList<Integer> ids = new ArrayList<Integer>();
+            int numEdges = 0;
+            for (ArrayList<Integer> section : sections.values()) {
+                ids.addAll(section);
+                numEdges += section.size() * (section.size() - 1) / 2;
+            }
+            int[] us = new int[numEdges];
+            int[] vs = new int[numEdges];
+            int e = 0;
+            int first = 0;
+            for (ArrayList<Integer> section : sections.values()) {
+                for (int i = first; i < first + section.size(); i++) {
+                    for (int j = i + 1; j < first + section.size(); j++) {
+                        us[e] = i;
+                        vs[e] = j;
+                        e++;
+                    }
                 }
+                first += section.size();
+            }
+            CSRGraph classmates = CSRGraph.fromEdges(ids.size(), us, vs, null, numEdges);
+            int[] mates = new ComplementView(classmates).maxMatching();
+            for (int i = 0; i < mates.length; i++) {
+                if (mates[i] > i) matching.add(new Edge(ids.get(i), ids.get(mates[i]), 1));
             }
         }
-
-        return new Graph(adjMatrix);
+        return matching;
     }
 
     // returns boolean array b such that b[i] = 1 iff
     // student i unmatched
     private static boolean[] getUnmatchedStudentBitArray(
-            Graph studentGraph, HashSet<Edge> matching) {
-        int numStudents = studentGraph.getNumVertices();
+            int numStudents, HashSet<Edge> matching) {
         boolean[] unmatchedStudents = new boolean[numStudents];
         Arrays.fill(unmatchedStudents, true);
 
@@ -129,11 +143,9 @@ public class MatchStudents {
 
     public static void main(String[] args) throws FileNotFoundException {
         ArrayList<Student> students = loadStudentsFromFiles(args);
-        Graph studentGraph = createStudentGraph(students);
 
         // run maximum matching alg
-        Blossom blossomAlg = new Blossom(studentGraph);
-        HashSet<Edge> matching = blossomAlg.getMaxMatching();
+        HashSet<Edge> matching = matchStudents(students);
 
         System.out.println("------------------------------");
         System.out.println("RESULTS:");
@@ -156,7 +168,7 @@ public class MatchStudents {
         System.out.println("------------------------------");
         System.out.println("UNMATCHED STUDENTS:");
         boolean[] unmatchedStudents =
-            getUnmatchedStudentBitArray(studentGraph, matching);
+            getUnmatchedStudentBitArray(students.size(), matching);
         int numUnmatched = 0;
         for (int i = 0; i < unmatchedStudents.length; i++) {
             if (unmatchedStudents[i]) {
@@ -0,0 +1,404 @@
+/*******************************************************************************
+* Maximum clique and maximum independent set (a clique of the complement),
+* on bitset rows (BitsetGraph). The rows take n^2 / 8 bytes, which bounds the
+* graphs this engine is meant for to some tens of thousands of vertices.
+*
+* Branch and bound in the style of Tomita's MCQ: at each node the candidates
+* are greedily colored one bitset color class at a time, and a branch is cut
+* once its clique plus its number of colors cannot beat the best clique.
+* The top level has one branch per vertex v, holding the neighbors of v that
+* come later in a smallest-last (degeneracy) order, so no branch has more
+* candidates than the degeneracy. Branches run on a fork-join pool (work
+* stealing), sharing the best size found.
+*
+* A maximum matching of the complement gives both bounds for free: its
+* unmatched vertices are pairwise adjacent (a clique to start from), and each
+* matched pair has at most one clique vertex, so the clique has at most
+* n - (matching size) vertices. The search stops as soon as it meets this
+* bound. For independent sets this is the usual matching bound on vertex
+* cover: the matched vertices cover every edge, and a cover needs at least
+* one vertex per matching edge.
+*
+* With a node budget, the search runs sequentially and stops after that many
+* search nodes, so the result does not depend on timing or thread count. The
+* clique found is then only a lower bound (isOptimal says which); Coloring
+* uses it this way.
+*
+* forEachMaximalClique enumerates maximal cliques by Bron-Kerbosch with
+* Tomita's pivot (the pivot covers the most candidates).
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.IntStream;
+
+public class MaxClique {
+
+    // receives the maximal cliques of a graph, one at a time; vertices[0 ..
+    // size) is only valid during the call
+    public interface CliqueSink {
+        void clique(int[] vertices, int size);
+    }
+
+    private BitsetGraph g;
+    private int n;
+    private int numWords;
+
+    private AtomicInteger bestSize = new AtomicInteger();
+    private int[] best = new int[0];
+    private int upperBound;
+    private AtomicLong nodes = new AtomicLong();
+    private long maxNodes; // search nodes allowed
+    private volatile boolean budgetSpent;
+    private long elapsedNanos;
+
+    // find a maximum clique of g, on the common fork-join pool
+    public MaxClique(Graph g) {
+        this(g.toCSR());
+    }
+
+    // find a maximum clique of g, on the common fork-join pool
+    public MaxClique(CSRGraph g) {
+        this(new BitsetGraph(g), new ComplementView(g).maxMatching(),
+            Coloring.greedyClique(g), ForkJoinPool.commonPool(), Long.MAX_VALUE);
+    }
+
+    // find a large clique of g with at most maxNodes search nodes, on the
+    // calling thread. deterministic; the clique is maximum iff isOptimal()
+    public MaxClique(CSRGraph g, long maxNodes) {
+        this(new BitsetGraph(g), new ComplementView(g).maxMatching(),
+            Coloring.greedyClique(g), null, maxNodes);
+    }
+
+    // find a maximum independent set of g (returned as the clique of its
+    // complement), on the common fork-join pool
+    public static MaxClique maxIndependentSet(CSRGraph g) {
+        return new MaxClique(new BitsetGraph(g).complement(),
+            new SparseBlossom(g).getMates(), new int[0], ForkJoinPool.commonPool(),
+            Long.MAX_VALUE);
+    }
+
+    // find a maximum independent set of g
+    public static MaxClique maxIndependentSet(Graph g) {
+        return maxIndependentSet(g.toCSR());
+    }
+
+    // find a maximum clique of g, where complementMates is a maximum
+    // matching of the complement of g and start is some clique of g. runs
+    // on pool, or on the calling thread if pool is null
+    private MaxClique(BitsetGraph g, int[] complementMates, int[] start, ForkJoinPool pool,
+    long maxNodes) {
+        long begin = System.nanoTime();
+        this.g = g;
+        this.maxNodes = maxNodes;
+        this.n = g.getNumVertices();
+        this.numWords = g.getNumWords();
+
+        int matched = 0;
+        int numFree = 0;
+        int[] free = new int[n];
+        for (int v = 0; v < n; v++) {
+            if (complementMates[v] == -1) free[numFree++] = v;
+            else matched++;
+        }
+        this.upperBound = n - matched / 2;
+        offer(Arrays.copyOf(free, numFree), numFree);
+        offer(start, start.length);
+
+        if (bestSize.get() < upperBound) {
+            int[] order = degeneracyOrder();
+            int[] position = new int[n];
+            for (int i = 0; i < n; i++) position[order[i]] = i;
+            if (pool == null) {
+                for (int i = 0; i < n && !budgetSpent; i++) topLevel(order[i], position);
+            }
+            else {
+                try {
+                    pool.submit(() -> IntStream.range(0, n).parallel()
+                        .forEach(i -> topLevel(order[i], position))).get();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while searching for cliques.", e);
+                }
+                catch (ExecutionException e) {
+                    throw new IllegalStateException("Clique search failed.", e.getCause());
+                }
+            }
+        }
+        this.elapsedNanos = System.nanoTime() - begin;
+    }
+
+    // search the cliques whose earliest vertex (in degeneracy order) is v
+    private void topLevel(int v, int[] position) {
+        long[] candidates = new long[numWords];
+        long[] row = g.getRow(v);
+        int size = 0;
+        for (int w = 0; w < numWords; w++) {
+            long word = row[w];
+            while (word != 0) {
+                int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (position[u] > position[v]) {
+                    candidates[w] |= 1L << u;
+                    size++;
+                }
+            }
+        }
+        if (size + 1 <= bestSize.get() || bestSize.get() >= upperBound) return;
+        int[] clique = new int[size + 1];
+        clique[0] = v;
+        if (size == 0) offer(clique, 1);
+        else expand(clique, 1, candidates, size);
+    }
+
+    // extend clique[0 .. size) by vertices of candidates (all adjacent to
+    // every clique vertex)
+    private void expand(int[] clique, int size, long[] candidates, int numCandidates) {
+        if (nodes.incrementAndGet() > maxNodes) budgetSpent = true;
+        if (budgetSpent) return;
+        int[] order = new int[numCandidates];
+        int[] bound = new int[numCandidates];
+        colorCandidates(candidates, order, bound);
+
+        long[] remaining = candidates.clone();
+        long[] next = new long[numWords];
+        for (int i = numCandidates - 1; i >= 0; i--) {
+            if (size + bound[i] <= bestSize.get() || bestSize.get() >= upperBound) return;
+            if (budgetSpent) return;
+            int v = order[i];
+            clique[size] = v;
+            long[] row = g.getRow(v);
+            int count = 0;
+            for (int w = 0; w < numWords; w++) {
+                next[w] = remaining[w] & row[w];
+                count += Long.bitCount(next[w]);
+            }
+            if (count == 0) offer(clique, size + 1);
+            else expand(clique, size + 1, next.clone(), count);
+            remaining[v >>> 6] &= ~(1L << v);
+        }
+    }
+
+    // greedy coloring of candidates, one color class (an independent set
+    // built with bitset ANDs) at a time. order lists the candidates by
+    // color and bound[i] is the color of order[i], counting from 1
+    private void colorCandidates(long[] candidates, int[] order, int[] bound) {
+        long[] uncolored = candidates.clone();
+        long[] open = new long[numWords];
+        int k = 0;
+        int color = 0;
+        while (k < order.length) {
+            color++;
+            System.arraycopy(uncolored, 0, open, 0, numWords);
+            for (int w = 0; w < numWords; w++) {
+                while (open[w] != 0) {
+                    int v = (w << 6) + Long.numberOfTrailingZeros(open[w]);
+                    uncolored[w] &= ~(1L << v);
+                    long[] row = g.getRow(v);
+                    for (int x = w; x < numWords; x++) open[x] &= ~row[x];
+                    open[w] &= ~(1L << v);
+                    order[k] = v;
+                    bound[k] = color;
+                    k++;
+                }
+            }
+        }
+    }
+
+    // record clique[0 .. size) if it beats the best clique so far
+    private void offer(int[] clique, int size) {
+        if (size <= bestSize.get()) return;
+        synchronized (this) {
+            if (size <= bestSize.get()) return;
+            best = Arrays.copyOf(clique, size);
+            bestSize.set(size);
+        }
+    }
+
+    // smallest-last order: repeatedly remove a vertex of minimum remaining
+    // degree, listing the removed vertices back to front. bucket queue
+    // (Batagelj-Zaversnik), O(n^2 / 64 + m)
+    private int[] degeneracyOrder() {
+        int[] degree = new int[n];
+        int maxDegree = 0;
+        for (int v = 0; v < n; v++) {
+            degree[v] = g.degree(v);
+            maxDegree = Math.max(maxDegree, degree[v]);
+        }
+        // vertices sorted by degree; start[d] is where degree d begins
+        int[] start = new int[maxDegree + 2];
+        for (int v = 0; v < n; v++) start[degree[v] + 1]++;
+        for (int d = 0; d <= maxDegree; d++) start[d + 1] += start[d];
+        int[] sorted = new int[n];
+        int[] pos = new int[n];
+        int[] fill = Arrays.copyOf(start, maxDegree + 1);
+        for (int v = 0; v < n; v++) {
+            pos[v] = fill[degree[v]]++;
+            sorted[pos[v]] = v;
+        }
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            int v = sorted[i]; // minimum remaining degree
+            order[n - 1 - i] = v;
+            long[] row = g.getRow(v);
+            for (int w = 0; w < numWords; w++) {
+                long word = row[w];
+                while (word != 0) {
+                    int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (pos[u] <= i || degree[u] <= degree[v]) continue;
+                    // move u to the front of its bucket, then shrink it
+                    int d = degree[u];
+                    int first = Math.max(start[d], i + 1);
+                    int swap = sorted[first];
+                    sorted[pos[u]] = swap;
+                    pos[swap] = pos[u];
+                    sorted[first] = u;
+                    pos[u] = first;
+                    start[d] = first + 1;
+                    degree[u]--;
+                }
+            }
+        }
+        return order;
+    }
+
+    /* MAXIMAL CLIQUES */
+
+    // pass every maximal clique of g to sink (Bron-Kerbosch, Tomita pivot)
+    public static void forEachMaximalClique(BitsetGraph g, CliqueSink sink) {
+        int numWords = g.getNumWords();
+        bronKerbosch(g, new int[g.getNumVertices()], 0, g.allVerticesMask(),
+            new long[numWords], sink);
+    }
+
+    private static void bronKerbosch(BitsetGraph g, int[] clique, int size, long[] p,
+        long[] x, CliqueSink sink) {
+        int numWords = g.getNumWords();
+        if (isEmpty(p)) {
+            if (isEmpty(x)) sink.clique(clique, size);
+            return;
+        }
+
+        // pivot: vertex of p or x with the most neighbors in p
+        int pivot = -1;
+        int pivotCount = -1;
+        for (long[] set : new long[][] { p, x }) {
+            for (int w = 0; w < numWords; w++) {
+                long word = set[w];
+                while (word != 0) {
+                    int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    int count = 0;
+                    long[] row = g.getRow(u);
+                    for (int y = 0; y < numWords; y++) count += Long.bitCount(p[y] & row[y]);
+                    if (count > pivotCount) {
+                        pivot = u;
+                        pivotCount = count;
+                    }
+                }
+            }
+        }
+
+        // branch on the candidates the pivot does not cover
+        long[] pivotRow = g.getRow(pivot);
+        long[] branches = new long[numWords];
+        for (int w = 0; w < numWords; w++) branches[w] = p[w] & ~pivotRow[w];
+        for (int w = 0; w < numWords; w++) {
+            while (branches[w] != 0) {
+                int v = (w << 6) + Long.numberOfTrailingZeros(branches[w]);
+                branches[w] &= branches[w] - 1;
+                long[] row = g.getRow(v);
+                long[] nextP = new long[numWords];
+                long[] nextX = new long[numWords];
+                for (int y = 0; y < numWords; y++) {
+                    nextP[y] = p[y] & row[y];
+                    nextX[y] = x[y] & row[y];
+                }
+                clique[size] = v;
+                bronKerbosch(g, clique, size + 1, nextP, nextX, sink);
+                p[w] &= ~(1L << v);
+                x[w] |= 1L << v;
+            }
+        }
+    }
+
+    private static boolean isEmpty(long[] set) {
+        for (long word : set) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    /* ACCESSOR METHODS */
+
+    // returns the vertices of the maximum clique (or independent set)
+    public int[] getVertices() {
+        return Arrays.copyOf(this.best, best.length);
+    }
+
+    // returns the size of the maximum clique (or independent set)
+    public int getSize() {
+        return this.bestSize.get();
+    }
+
+    // is the clique proven maximum? false only if the node budget ran out
+    public boolean isOptimal() {
+        return !budgetSpent || bestSize.get() >= upperBound;
+    }
+
+    // returns the matching upper bound, n - (max matching of the complement)
+    public int getUpperBound() {
+        return this.upperBound;
+    }
+
+    // returns number of search nodes expanded
+    public long getNumNodes() {
+        return this.nodes.get();
+    }
+
+    // returns time spent, in milliseconds
+    public double getElapsedMillis() {
+        return this.elapsedNanos / 1e6;
+    }
+
+    // String representation of result
+    public String toString() {
+        return "--------------------------------------------------\n" +
+        "MAX CLIQUE RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Size: " + getSize() + " (matching bound " + upperBound + ")\n" +
+        "Vertices: " + Arrays.toString(best) + "\n" +
+        "Search nodes: " + nodes.get() + ", " +
+        String.format("%.1f", getElapsedMillis()) + "ms\n" +
+        "--------------------------------------------------";
+    }
+
+    // run time trials on random graphs with n vertices and edge probability p
+    public static void runTimeTrials(int n, double p) {
+        CSRGraph g = RandomGraph.getSparseGnp(n, p, 1);
+        MaxClique clique = new MaxClique(g);
+        System.out.println("Clique: " + clique.getSize() + ", " + clique.getNumNodes() +
+        " nodes, " + String.format("%.1f", clique.getElapsedMillis()) + "ms");
+        MaxClique independent = maxIndependentSet(g);
+        System.out.println("Independent set: " + independent.getSize() + ", " +
+        independent.getNumNodes() + " nodes, " +
+        String.format("%.1f", independent.getElapsedMillis()) + "ms");
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        if (args.length == 2) {
+            runTimeTrials(Integer.parseInt(args[0]), Double.parseDouble(args[1]));
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        System.out.println(new MaxClique(g));
+        System.out.println("Max independent set: " +
+            Arrays.toString(maxIndependentSet(g).getVertices()));
+    }
+}
@@ -0,0 +1,262 @@
+/*******************************************************************************
+* Maximum cardinality matching of any graph through one entry point. The
+* graph's cached structural properties (forest, components, bipartite,
+* density; see CSRGraph) decide which engine runs:
+*   - forests (and graphs without edges): ForestMatching, O(n)
+*   - several components, none holding more than half of the vertices, on a
+*     machine with more than one core: ComponentMatching, in parallel
+*   - dense graphs (density at least DENSE_THRESHOLD) of up to
+*     MAX_BITSET_VERTICES vertices: BitsetBlossom, which scans 64 neighbors
+*     per word
+*   - everything else: SparseBlossom
+* Bipartite inputs need no engine of their own: no blossom ever forms, and in
+* time trials (runTimeTrials) SparseBlossom and BitsetBlossom beat
+* PushRelabelMatching at every density tried. It can still be forced by
+* passing an Engine.
+*
+* Whatever engine ran, the result can be certified in O(n + m) by a
+* Tutte-Berge barrier (getTutteBergeSet, isCertified).
+*
+* Every dispatch is counted per engine (getDispatchCount), so the mix of
+* inputs seen by a long running process can be inspected.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class MaximumMatching {
+
+    public enum Engine { FOREST, COMPONENTS, SPARSE_BLOSSOM, PUSH_RELABEL, BITSET_BLOSSOM }
+
+    // density from which BitsetBlossom beat SparseBlossom in time trials
+    private static final double DENSE_THRESHOLD = 0.25;
+    // largest graph handed to BitsetBlossom; its matrix takes n^2 / 8 bytes
+    private static final int MAX_BITSET_VERTICES = 1 << 14;
+
+    // number of times each engine was dispatched to, over all instances
+    private static final AtomicLongArray DISPATCH_COUNTS =
+        new AtomicLongArray(Engine.values().length);
+
+    private CSRGraph g;
+    private int n;
+    private Engine engine;
+    private int[] mates;
+    private int matchingSize;
+    private long elapsedNanos;
+
+    // find a maximum matching of g with the engine chosen for it
+    public MaximumMatching(Graph g) {
+        this(g.toCSR());
+    }
+
+    // find a maximum matching of g with the engine chosen for it
+    public MaximumMatching(CSRGraph g) {
+        this(g, chooseEngine(g));
+    }
+
+    // find a maximum matching of g with the given engine. throws
+    // IllegalArgumentException if the engine cannot handle g (FOREST needs a
+    // forest, PUSH_RELABEL a bipartite graph)
+    public MaximumMatching(CSRGraph g, Engine engine) {
+        long start = System.nanoTime();
+        this.g = g;
+        this.n = g.getNumVertices();
+        this.engine = engine;
+        this.mates = new int[n];
+        switch (engine) {
+            case FOREST:
+                ForestMatching forest = new ForestMatching(g);
+                for (int v = 0; v < n; v++) mates[v] = forest.getMate(v);
+                break;
+            case COMPONENTS:
+                ComponentMatching components = new ComponentMatching(g);
+                for (int v = 0; v < n; v++) mates[v] = components.getMate(v);
+                break;
+            case PUSH_RELABEL:
+                PushRelabelMatching flow = new PushRelabelMatching(g,
+                    PushRelabel.Selection.HIGHEST_LABEL);
+                for (int v = 0; v < n; v++) mates[v] = flow.getMate(v);
+                break;
+            case BITSET_BLOSSOM:
+                BitsetBlossom bitset = new BitsetBlossom(new BitsetGraph(g));
+                for (int v = 0; v < n; v++) mates[v] = bitset.getMate(v);
+                break;
+            default:
+                SparseBlossom blossom = new SparseBlossom(g);
+                for (int v = 0; v < n; v++) mates[v] = blossom.getMate(v);
+        }
+        for (int v = 0; v < n; v++) {
+            if (mates[v] > v) matchingSize++;
+        }
+        DISPATCH_COUNTS.incrementAndGet(engine.ordinal());
+        this.elapsedNanos = System.nanoTime() - start;
+    }
+
+    // the engine MaximumMatching(g) would run on g
+    public static Engine chooseEngine(CSRGraph g) {
+        int n = g.getNumVertices();
+        if (g.getNumEdges() == 0 || g.isForest()) return Engine.FOREST;
+        if (g.getNumComponents() > 1 && 2 * g.getLargestComponentSize() <= n &&
+            Runtime.getRuntime().availableProcessors() > 1) {
+            return Engine.COMPONENTS;
+        }
+        if (n <= MAX_BITSET_VERTICES && g.getDensity() >= DENSE_THRESHOLD) {
+            return Engine.BITSET_BLOSSOM;
+        }
+        return Engine.SPARSE_BLOSSOM;
+    }
+
+    // returns number of times engine was dispatched to, over all instances
+    public static long getDispatchCount(Engine engine) {
+        return DISPATCH_COUNTS.get(engine.ordinal());
+    }
+
+    // zero every dispatch counter
+    public static void resetDispatchCounts() {
+        for (int i = 0; i < DISPATCH_COUNTS.length(); i++) DISPATCH_COUNTS.set(i, 0);
+    }
+
+    // returns the engine that found this matching
+    public Engine getEngine() {
+        return this.engine;
+    }
+
+    // returns time spent matching (engine choice included), in milliseconds
+    public double getElapsedMillis() {
+        return this.elapsedNanos / 1e6;
+    }
+
+    // returns a Tutte-Berge barrier proving this matching maximum; see
+    // SparseBlossom.getTutteBergeSet. throws IllegalStateException if the
+    // matching is not maximum
+    public boolean[] getTutteBergeSet() {
+        SparseBlossom blossom = new SparseBlossom();
+        blossom.load(g);
+        blossom.setMatching(mates);
+        return blossom.getTutteBergeSet();
+    }
+
+    // is this matching certified maximum by its Tutte-Berge barrier? O(n + m)
+    public boolean isCertified() {
+        try {
+            return SparseBlossom.isTutteBergeWitness(g, mates, getTutteBergeSet());
+        }
+        catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    // returns the size of the max cardinality matching of this graph
+    public int getMaxMatchingSize() {
+        return this.matchingSize;
+    }
+
+    // returns mate of vertex v in the matching, or -1 if v is unmatched
+    public int getMate(int v) {
+        return this.mates[v];
+    }
+
+    // returns copy of the mate array
+    public int[] getMates() {
+        return Arrays.copyOf(this.mates, n);
+    }
+
+    // returns the edge set of the max cardinality matching of this graph
+    public HashSet<Edge> getMaxMatching() {
+        HashSet<Edge> matching = new HashSet<Edge>();
+        for (int v = 0; v < n; v++) {
+            if (mates[v] > v) matching.add(new Edge(v, mates[v], g.getWeight(v, mates[v])));
+        }
+        return matching;
+    }
+
+    // String representation of result
+    public String toString() {
+        StringBuilder edges = new StringBuilder();
+        for (Edge e : this.getMaxMatching()) {
+            edges.append(e).append("\n");
+        }
+        return "--------------------------------------------------\n" +
+        "MAXIMUM MATCHING RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Engine: " + engine + " (" + String.format("%.1f", getElapsedMillis()) + "ms)\n" +
+        "Max matching size:\n" + this.getMaxMatchingSize() + "\n\n" +
+        "Illustration:\n" +
+        edges +
+        "--------------------------------------------------";
+    }
+
+    // fixtures for runSanityChecks, relative to the testing directory.
+    // easy3 and mom_and_dad have asymmetric matrices
+    private static final String[] FIXTURES = {
+        "nonbipartite/easy3.txt", "mom_and_dad.txt", "nonbipartite/hard.txt",
+        "petersen.txt", "input2_disconnected.txt", "k6_6.txt", "trees/e-graph.txt",
+        "trees/5-star.txt"
+    };
+
+    // run time trials: every engine that accepts the graph, on random
+    // bipartite and general graphs with n vertices and each edge
+    // probability in ps
+    public static void runTimeTrials(int n, double[] ps) {
+        for (double p : ps) {
+            CSRGraph[] inputs = {
+                RandomGraph.getSparseBipartite(n / 2, n - n / 2, p, 1),
+                RandomGraph.getSparseGnp(n, p, 1)
+            };
+            for (CSRGraph g : inputs) {
+                System.out.println((g.isBipartite() ? "bipartite" : "general") +
+                ", p = " + p + compareEngines(g));
+            }
+        }
+    }
+
+    // run sanity checks on the fixtures under testingDir: the chosen engine
+    // accepts each graph, every engine agrees on its size and the matching
+    // is certified
+    public static void runSanityChecks(String testingDir) {
+        for (String fixture : FIXTURES) {
+            CSRGraph g = new Graph(Graph.loadMatrixFromFile(testingDir + "/" + fixture)).toCSR();
+            String line = compareEngines(g);
+            if (!new MaximumMatching(g).isCertified()) {
+                throw new IllegalStateException("programmer error; uncertified matching on " +
+                fixture + ".");
+            }
+            System.out.println(fixture + line);
+        }
+    }
+
+    // run every engine that accepts g; throws if two find different sizes.
+    // returns the chosen engine and each engine's time
+    private static String compareEngines(CSRGraph g) {
+        StringBuilder line = new StringBuilder();
+        line.append(", chosen ").append(chooseEngine(g)).append(":");
+        int size = -1;
+        for (Engine engine : Engine.values()) {
+            if (engine == Engine.FOREST && !g.isForest()) continue;
+            if (engine == Engine.PUSH_RELABEL && !g.isBipartite()) continue;
+            MaximumMatching mm = new MaximumMatching(g, engine);
+            if (size != -1 && size != mm.getMaxMatchingSize()) {
+                throw new IllegalStateException("Engines found different" +
+                " size matchings.");
+            }
+            size = mm.getMaxMatchingSize();
+            line.append(" ").append(engine).append(" ")
+            .append(String.format("%.1f", mm.getElapsedMillis())).append("ms");
+        }
+        return line.toString();
+    }
+
+    // unit testing: with arguments n [testingDir], run the time trials on n
+    // vertices (and the sanity checks on the fixtures)
+    public static void main(String[] args) {
+        if (args.length >= 1) {
+            runTimeTrials(Integer.parseInt(args[0]), new double[] { 0.001, 0.01, 0.1, 0.5 });
+            if (args.length == 2) runSanityChecks(args[1]);
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        MaximumMatching mm = new MaximumMatching(g);
+        System.out.println(mm);
+    }
+}
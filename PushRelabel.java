@@ -0,0 +1,436 @@
+/*******************************************************************************
+* Push-relabel (Goldberg-Tarjan) maximum flow engine.
+*
+* Arcs are added one at a time, then frozen into a residual network stored in
+* compressed sparse row form: every arc and its reverse live in primitive
+* arrays, and rev[a] is the index of the partner of arc a.
+*
+* Active vertices are processed either in FIFO order or highest label first.
+* Two standard heuristics keep the number of relabels down:
+*   - global relabeling: distance labels are periodically recomputed exactly
+*     by a reverse BFS from the sink (and from the source for vertices that
+*     can no longer reach the sink)
+*   - gap relabeling: if no vertex has label k < n, every vertex above k is
+*     cut off from the sink and is lifted straight to n + 1
+* Time complexity: O(n^2 sqrt(m)) highest label, O(n^3) FIFO
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class PushRelabel {
+
+    // order in which active vertices are discharged
+    public enum Selection { FIFO, HIGHEST_LABEL }
+
+    private int numNodes;
+    private boolean frozen;
+
+    // arcs as added by the caller, before freezing
+    private int numArcs;
+    private int[] arcTail;
+    private int[] arcHead;
+    private int[] arcCap;
+    private int[] arcRevCap;
+
+    // residual network in CSR form
+    private int[] offsets;
+    private int[] head;
+    private int[] cap; // residual capacity
+    private int[] rev; // index of reverse arc
+    private int[] arcPos; // position of caller's arc i in the residual network
+    private int[] origCap; // capacity of residual arcs before the flow
+
+    // per vertex state
+    private int[] label;
+    private long[] excess;
+    private int[] current; // current arc of each vertex
+    private int[] labelCount; // number of vertices with each label < n
+
+    // active vertex structures
+    private int[] bucketHead; // highest label: active vertices per label
+    private int[] bucketNext;
+    private int maxActive;
+    private int[] queue; // fifo: circular queue of active vertices
+    private int queueHead;
+    private int queueSize;
+    private boolean[] inQueue;
+
+    private Selection selection;
+    private int source;
+    private int sink;
+    private long flowValue;
+    private int relabelsSinceGlobal;
+    private int numPushes;
+    private int numRelabels;
+    private int numGlobalRelabels;
+    private int numGaps;
+
+    // construct flow network with the given number of vertices and no arcs
+    public PushRelabel(int numNodes) {
+        this.numNodes = numNodes;
+        this.arcTail = new int[16];
+        this.arcHead = new int[16];
+        this.arcCap = new int[16];
+        this.arcRevCap = new int[16];
+    }
+
+    // add directed arc u --> v with given capacity. returns arc index
+    public int addArc(int u, int v, int capacity) {
+        return addArc(u, v, capacity, 0);
+    }
+
+    // add undirected edge (u, v); flow may go either way, up to capacity
+    public int addEdge(int u, int v, int capacity) {
+        return addArc(u, v, capacity, capacity);
+    }
+
+    // add arc u --> v with capacity, whose reverse arc has revCapacity
+    private int addArc(int u, int v, int capacity, int revCapacity) {
+        if (frozen) {
+            throw new IllegalStateException("Cannot add arcs after computing a flow.");
+        }
+        if (u < 0 || v < 0 || u >= numNodes || v >= numNodes) {
+            throw new IllegalArgumentException("Arc endpoint does not exist.");
+        }
+        if (capacity < 0 || revCapacity < 0) {
+            throw new IllegalArgumentException("Capacities must be nonnegative.");
+        }
+        if (numArcs == arcTail.length) {
+            int newLen = 2 * numArcs;
+            arcTail = Arrays.copyOf(arcTail, newLen);
+            arcHead = Arrays.copyOf(arcHead, newLen);
+            arcCap = Arrays.copyOf(arcCap, newLen);
+            arcRevCap = Arrays.copyOf(arcRevCap, newLen);
+        }
+        arcTail[numArcs] = u;
+        arcHead[numArcs] = v;
+        arcCap[numArcs] = capacity;
+        arcRevCap[numArcs] = revCapacity;
+        return numArcs++;
+    }
+
+    // compute a maximum flow from s to t, highest label first
+    public long maxFlow(int s, int t) {
+        return maxFlow(s, t, Selection.HIGHEST_LABEL);
+    }
+
+    // compute a maximum flow from s to t with the given selection rule.
+    // may only be called once per network
+    public long maxFlow(int s, int t, Selection selection) {
+        if (frozen) {
+            throw new IllegalStateException("Flow has already been computed.");
+        }
+        if (s == t || s < 0 || t < 0 || s >= numNodes || t >= numNodes) {
+            throw new IllegalArgumentException("Source and sink must be " +
+            "distinct, existing vertices.");
+        }
+        freeze();
+        this.source = s;
+        this.sink = t;
+        this.selection = selection;
+
+        int n = numNodes;
+        label = new int[n];
+        excess = new long[n];
+        current = new int[n];
+        labelCount = new int[n + 1];
+        bucketHead = new int[2 * n + 1];
+        bucketNext = new int[n];
+        queue = new int[n];
+        inQueue = new boolean[n];
+        Arrays.fill(bucketHead, -1);
+        maxActive = 0;
+
+        // saturate every arc out of the source
+        for (int a = offsets[s]; a < offsets[s + 1]; a++) {
+            int c = cap[a];
+            if (c == 0) continue;
+            cap[a] = 0;
+            cap[rev[a]] += c;
+            excess[head[a]] += c;
+            excess[s] -= c;
+        }
+        globalRelabel(); // also activates vertices with excess
+
+        // discharge active vertices until none are left
+        int v;
+        while ((v = nextActive()) != -1) {
+            discharge(v);
+            if (relabelsSinceGlobal > n) {
+                globalRelabel();
+            }
+        }
+
+        flowValue = excess[t];
+        return flowValue;
+    }
+
+    // push excess out of v until it has none, relabeling as needed
+    private void discharge(int v) {
+        int n = numNodes;
+        while (excess[v] > 0) {
+            int end = offsets[v + 1];
+            int a = current[v];
+            for (; a < end; a++) {
+                int w = head[a];
+                if (cap[a] > 0 && label[v] == label[w] + 1) {
+                    long delta = Math.min(excess[v], cap[a]);
+                    cap[a] -= delta;
+                    cap[rev[a]] += delta;
+                    excess[v] -= delta;
+                    boolean wasInactive = excess[w] == 0;
+                    excess[w] += delta;
+                    numPushes++;
+                    if (wasInactive && w != source && w != sink) activate(w);
+                    if (excess[v] == 0) break;
+                }
+            }
+            current[v] = a < end ? a : offsets[v];
+            if (excess[v] == 0) return;
+
+            // no admissible arc left: relabel
+            int oldLabel = label[v];
+            int minLabel = 2 * n;
+            for (int b = offsets[v]; b < end; b++) {
+                if (cap[b] > 0) minLabel = Math.min(minLabel, label[head[b]]);
+            }
+            setLabel(v, Math.min(minLabel + 1, 2 * n));
+            numRelabels++;
+            relabelsSinceGlobal++;
+
+            // gap heuristic: nothing left at oldLabel, so everything above
+            // it (and below n) can no longer reach the sink
+            if (oldLabel < n && labelCount[oldLabel] == 0) {
+                numGaps++;
+                for (int u = 0; u < n; u++) {
+                    if (label[u] > oldLabel && label[u] < n) {
+                        setLabel(u, n + 1);
+                        current[u] = offsets[u];
+                    }
+                }
+            }
+            if (label[v] >= 2 * n) return; // cannot push anywhere
+        }
+    }
+
+    // recompute exact distance labels: distance to sink in the residual
+    // network, or n + distance to source for vertices that cannot reach it
+    private void globalRelabel() {
+        int n = numNodes;
+        numGlobalRelabels++;
+        relabelsSinceGlobal = 0;
+        int[] newLabel = new int[n];
+        Arrays.fill(newLabel, 2 * n);
+        int[] bfs = new int[n];
+
+        int tail = 0;
+        newLabel[sink] = 0;
+        bfs[tail++] = sink;
+        tail = reverseBfs(newLabel, bfs, 0, tail);
+        newLabel[source] = n;
+        int start = tail;
+        bfs[tail++] = source;
+        reverseBfs(newLabel, bfs, start, tail);
+
+        Arrays.fill(labelCount, 0);
+        for (int v = 0; v < n; v++) {
+            label[v] = newLabel[v];
+            if (label[v] < n) labelCount[label[v]]++;
+            current[v] = offsets[v];
+        }
+
+        // labels changed, so rebuild the active structures
+        if (selection == Selection.HIGHEST_LABEL) {
+            Arrays.fill(bucketHead, -1);
+            maxActive = 0;
+        }
+        else {
+            queueHead = 0;
+            queueSize = 0;
+            Arrays.fill(inQueue, false);
+        }
+        for (int v = 0; v < n; v++) {
+            if (v != source && v != sink && excess[v] > 0) activate(v);
+        }
+    }
+
+    // bfs over residual arcs into vertices already labeled, from the vertices
+    // in bfs[head .. tail). returns new tail
+    private int reverseBfs(int[] newLabel, int[] bfs, int head, int tail) {
+        int n = numNodes;
+        while (head < tail) {
+            int w = bfs[head++];
+            for (int a = offsets[w]; a < offsets[w + 1]; a++) {
+                int v = this.head[a];
+                // arc v --> w has residual capacity iff cap[rev[a]] > 0
+                if (newLabel[v] == 2 * n && cap[rev[a]] > 0) {
+                    newLabel[v] = newLabel[w] + 1;
+                    bfs[tail++] = v;
+                }
+            }
+        }
+        return tail;
+    }
+
+    private void setLabel(int v, int newLabel) {
+        int n = numNodes;
+        if (label[v] < n) labelCount[label[v]]--;
+        label[v] = newLabel;
+        if (newLabel < n) labelCount[newLabel]++;
+    }
+
+    // mark v as active
+    private void activate(int v) {
+        if (selection == Selection.HIGHEST_LABEL) {
+            if (label[v] >= 2 * numNodes) return;
+            bucketNext[v] = bucketHead[label[v]];
+            bucketHead[label[v]] = v;
+            maxActive = Math.max(maxActive, label[v]);
+        }
+        else {
+            if (inQueue[v]) return;
+            inQueue[v] = true;
+            queue[(queueHead + queueSize) % numNodes] = v;
+            queueSize++;
+        }
+    }
+
+    // next vertex to discharge, or -1 if there are no active vertices
+    private int nextActive() {
+        if (selection == Selection.HIGHEST_LABEL) {
+            while (maxActive >= 0) {
+                int v = bucketHead[maxActive];
+                if (v == -1) {
+                    maxActive--;
+                    continue;
+                }
+                bucketHead[maxActive] = bucketNext[v];
+                // skip stale entries whose label changed since activation
+                if (label[v] != maxActive || excess[v] == 0) continue;
+                return v;
+            }
+            return -1;
+        }
+        while (queueSize > 0) {
+            int v = queue[queueHead];
+            queueHead = (queueHead + 1) % numNodes;
+            queueSize--;
+            inQueue[v] = false;
+            if (excess[v] > 0 && label[v] < 2 * numNodes) return v;
+        }
+        return -1;
+    }
+
+    // build the residual network from the arcs added so far
+    private void freeze() {
+        frozen = true;
+        int n = numNodes;
+        offsets = new int[n + 1];
+        for (int i = 0; i < numArcs; i++) {
+            offsets[arcTail[i] + 1]++;
+            offsets[arcHead[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+
+        int total = 2 * numArcs;
+        head = new int[total];
+        cap = new int[total];
+        rev = new int[total];
+        arcPos = new int[numArcs];
+        int[] cursor = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < numArcs; i++) {
+            int u = arcTail[i];
+            int v = arcHead[i];
+            int a = cursor[u]++;
+            int b = cursor[v]++;
+            head[a] = v;
+            cap[a] = arcCap[i];
+            head[b] = u;
+            cap[b] = arcRevCap[i];
+            rev[a] = b;
+            rev[b] = a;
+            arcPos[i] = a;
+        }
+        origCap = Arrays.copyOf(cap, total);
+    }
+
+    // net flow on arc i (as returned by addArc / addEdge) from its tail to
+    // its head; negative if an undirected edge carries flow the other way
+    public long getFlow(int i) {
+        if (!frozen) {
+            throw new IllegalStateException("Flow has not been computed yet.");
+        }
+        int a = arcPos[i];
+        return origCap[a] - cap[a];
+    }
+
+    // returns value of the maximum flow
+    public long getFlowValue() {
+        return this.flowValue;
+    }
+
+    // vertices on the source side of a minimum cut
+    // (those that can still reach the sink are on the sink side)
+    public boolean[] getMinCut() {
+        if (!frozen) {
+            throw new IllegalStateException("Flow has not been computed yet.");
+        }
+        int n = numNodes;
+        int[] dist = new int[n];
+        Arrays.fill(dist, 2 * n);
+        int[] bfs = new int[n];
+        dist[sink] = 0;
+        bfs[0] = sink;
+        reverseBfs(dist, bfs, 0, 1);
+        boolean[] sourceSide = new boolean[n];
+        for (int v = 0; v < n; v++) sourceSide[v] = dist[v] == 2 * n;
+        return sourceSide;
+    }
+
+    /* CONNECTIVITY QUERIES */
+
+    // maximum number of edge-disjoint paths between s and t in g
+    public static long edgeDisjointPaths(CSRGraph g, int s, int t) {
+        PushRelabel flow = new PushRelabel(g.getNumVertices());
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        for (int u = 0; u < g.getNumVertices(); u++) {
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                if (u < targets[k]) flow.addEdge(u, targets[k], 1);
+            }
+        }
+        return flow.maxFlow(s, t);
+    }
+
+    // is there a path between s and t? (flow value of at least one)
+    public static boolean existsPath(CSRGraph g, int s, int t) {
+        return s == t || edgeDisjointPaths(g, s, t) > 0;
+    }
+
+    // String representation of statistics
+    public String toString() {
+        return "--------------------------------------------------\n" +
+        "PUSH-RELABEL RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Max flow value:\n" + this.flowValue + "\n\n" +
+        "Pushes / relabels:\n" + this.numPushes + " / " + this.numRelabels + "\n\n" +
+        "Global relabels / gaps:\n" + this.numGlobalRelabels + " / " + this.numGaps + "\n" +
+        "--------------------------------------------------";
+    }
+
+    // unit testing: reads adjacency matrix of capacities, flow from the
+    // first vertex to the last
+    public static void main(String[] args) {
+        int[][] capacities = Graph.loadMatrixFromStdIn();
+        int n = capacities.length;
+        PushRelabel flow = new PushRelabel(n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (capacities[i][j] > 0) flow.addArc(i, j, capacities[i][j]);
+            }
+        }
+        flow.maxFlow(0, n - 1);
+        System.out.println(flow);
+    }
+}
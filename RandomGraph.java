@@ -1,12 +1,17 @@
 /*******************************************************************************
 * RandomGraph.java
 * Class to generate random bipartite and general (simple) graphs.
+* The getSparse* generators are seeded, parallel and return CSRGraphs.
 *
 * Author: Jesse Goodman
 ******************************************************************************/
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class RandomGraph {
+    // number of chunks the seeded generators cut their work into; fixed, so
+    // results don't depend on the number of threads
+    private static final int NUM_CHUNKS = 256;
 
     // get random general graph with n vertices
     // each pair of vertices has a probability p of being adjacent
@@ -175,19 +180,42 @@ public class RandomGraph {
     }
 
     // get perfect general that has a guaranteed odd cycle
-    // that is, get a perfect general graph that is nonbipartite
+    // that is, get a perfect general graph that is nonbipartite.
+    // plants a triangle on one matched pair and a third vertex, instead of
+    // regenerating until the graph happens to be nonbipartite
     public static Graph getPerfectNonbipartite(int n, int m) {
         // nonbipartite with perfect matching not possible
-        if (n < 4 || m < 4) {
+        if (n < 4 || n % 2 == 1 || m < n/2 + 2 || m > (n*(n-1))/2) {
             throw new IllegalArgumentException("Non-bipartite graph with"
              + " perfect matching not possible for given parameters");
         }
-        Graph g = getPerfectGeneral(n,m);
-        while (g.getBipartitions() != null) {
-            g = getPerfectGeneral(n,m);
+        Random random = new Random();
+        int[][] adjMatrix = new int[n][n];
+
+        // plant perfect matching on a random pairing of the vertices
+        ArrayList<Integer> perm = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++) perm.add(i);
+        Collections.shuffle(perm, random);
+        for (int i = 0; i < n; i += 2) {
+            adjMatrix[perm.get(i)][perm.get(i+1)] = 1;
+            adjMatrix[perm.get(i+1)][perm.get(i)] = 1;
+        }
+
+        // plant triangle on the first pair and a vertex of the second
+        int a = perm.get(0), b = perm.get(1), c = perm.get(2);
+        adjMatrix[a][c] = adjMatrix[c][a] = 1;
+        adjMatrix[b][c] = adjMatrix[c][b] = 1;
+
+        // obscure perfect matching with the remaining random edges
+        for (int remEdges = m - (n/2) - 2; remEdges > 0; ) {
+            int u = random.nextInt(n);
+            int v = random.nextInt(n);
+            if ((u == v) || adjMatrix[u][v] != 0) continue;
+            adjMatrix[u][v] = adjMatrix[v][u] = 1;
+            remEdges--;
         }
 
-        return g;
+        return new Graph(adjMatrix);
     }
 
     // generate complete graph on n vertices
@@ -210,6 +238,594 @@ public class RandomGraph {
         return new Graph(Graph.adjListsToAdjMatrix(graph));
     }
 
+    /* SEEDED SPARSE GENERATORS */
+    // These emit edges straight into a CSRGraph, never building an n x n
+    // matrix. Work is cut into a fixed number of chunks, each with its own
+    // SplittableRandom split off the seed in order, and chunks run in
+    // parallel; so the same seed always gives the same graph, however many
+    // threads run it.
+
+    // get G(n, p): each pair of vertices is adjacent with probability p.
+    // pairs are skipped over geometrically (Batagelj-Brandes), so this
+    // takes O(n + m) expected time
+    public static CSRGraph getSparseGnp(int n, double p, long seed) {
+        checkProbability(p);
+        SplittableRandom[] rngs = splitRandoms(seed, NUM_CHUNKS);
+        EdgeBuffer[] buffers = new EdgeBuffer[NUM_CHUNKS];
+
+        // chunk c covers rows [rowStart[c], rowStart[c+1]) of the lower
+        // triangle; rows are cut so each chunk has about the same pairs
+        long numPairs = (long) n * (n - 1) / 2;
+        int[] rowStart = new int[NUM_CHUNKS + 1];
+        for (int c = 1; c <= NUM_CHUNKS; c++) {
+            double pairs = (double) numPairs * c / NUM_CHUNKS;
+            int row = (int) Math.ceil((1 + Math.sqrt(1 + 8 * pairs)) / 2);
+            rowStart[c] = Math.max(rowStart[c - 1], Math.min(n, row));
+        }
+        rowStart[NUM_CHUNKS] = n;
+
+        IntStream.range(0, NUM_CHUNKS).parallel().forEach(c -> {
+            EdgeBuffer buffer = new EdgeBuffer();
+            buffers[c] = buffer;
+            if (p == 0) return;
+            SplittableRandom rng = rngs[c];
+            double logQ = Math.log(1 - p);
+            int end = rowStart[c + 1];
+            int v = Math.max(rowStart[c], 1);
+            long w = -1;
+            while (v < end) {
+                double skip = Math.floor(Math.log(1 - rng.nextDouble()) / logQ);
+                if (skip >= numPairs) break; // past every remaining pair
+                w += 1 + (long) skip;
+                while (w >= v && v < end) {
+                    w -= v;
+                    v++;
+                }
+                if (v < end) buffer.add(v, (int) w);
+            }
+        });
+        return EdgeBuffer.toCSR(n, buffers);
+    }
+
+    // get random bipartite graph on partitions {0 .. left-1} and
+    // {left .. left+right-1}; each cross pair is adjacent with probability p
+    public static CSRGraph getSparseBipartite(int left, int right, double p, long seed) {
+        checkProbability(p);
+        SplittableRandom[] rngs = splitRandoms(seed, NUM_CHUNKS);
+        EdgeBuffer[] buffers = new EdgeBuffer[NUM_CHUNKS];
+        long numPairs = (long) left * right;
+
+        IntStream.range(0, NUM_CHUNKS).parallel().forEach(c -> {
+            EdgeBuffer buffer = new EdgeBuffer();
+            buffers[c] = buffer;
+            if (p == 0) return;
+            SplittableRandom rng = rngs[c];
+            double logQ = Math.log(1 - p);
+            // pair index i * right + j, for left vertex i and right vertex j
+            long end = (long) right * (int) ((long) left * (c + 1) / NUM_CHUNKS);
+            long index = (long) right * (int) ((long) left * c / NUM_CHUNKS) - 1;
+            while (true) {
+                double skip = Math.floor(Math.log(1 - rng.nextDouble()) / logQ);
+                if (skip >= numPairs) break;
+                index += 1 + (long) skip;
+                if (index >= end) break;
+                buffer.add((int) (index / right), left + (int) (index % right));
+            }
+        });
+        return EdgeBuffer.toCSR(left + right, buffers);
+    }
+
+    // get random bipartite graph on n/2 + n/2 vertices with cross pairs
+    // adjacent with probability p, and the perfect matching i -- n/2 + i
+    // planted
+    public static CSRGraph getSparsePerfectBipartite(int n, double p, long seed) {
+        if (n % 2 == 1) {
+            throw new IllegalArgumentException("Cannot have a PM on odd num of vertices");
+        }
+        CSRGraph random = getSparseBipartite(n / 2, n / 2, p, seed);
+        int[][] planted = new int[2][n / 2];
+        for (int i = 0; i < n / 2; i++) {
+            planted[0][i] = i;
+            planted[1][i] = n / 2 + i;
+        }
+        return union(random, planted[0], planted[1]);
+    }
+
+    // get G(n, m): a uniformly random graph with n vertices and m edges
+    public static CSRGraph getSparseGeneral(int n, long m, long seed) {
+        long numPairs = (long) n * (n - 1) / 2;
+        if (m < 0 || m > numPairs) {
+            throw new IllegalArgumentException("Cannot have " + m +
+            " edges in a simple graph on " + n + " vertices");
+        }
+        if (m > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Too many edges for a CSRGraph");
+        }
+
+        // sample whichever of the edges and non-edges is smaller
+        boolean sampleEdges = 2 * m <= numPairs;
+        long[] sampled = sampleDistinct(numPairs, (int) (sampleEdges ? m : numPairs - m), seed);
+        int[] us = new int[(int) m];
+        int[] vs = new int[(int) m];
+        int e = 0;
+        if (sampleEdges) {
+            for (long index : sampled) e = addPair(index, us, vs, e);
+        }
+        else {
+            int next = 0;
+            for (long index = 0; index < numPairs; index++) {
+                if (next < sampled.length && sampled[next] == index) next++;
+                else e = addPair(index, us, vs, e);
+            }
+        }
+        return CSRGraph.fromEdges(n, us, vs, null, e);
+    }
+
+    // get random graph with n vertices and at most m edges, with a random
+    // perfect matching planted (the m - n/2 random edges may repeat it)
+    public static CSRGraph getSparsePerfectGeneral(int n, long m, long seed) {
+        if (n % 2 == 1) {
+            throw new IllegalArgumentException("Cannot have a PM on odd num of vertices");
+        }
+        if (m < n / 2) {
+            throw new IllegalArgumentException("Cannot have a PM with less than n/2 edges");
+        }
+        SplittableRandom rng = new SplittableRandom(seed);
+        int[] perm = randomPermutation(n, rng);
+        int[] us = new int[n / 2];
+        int[] vs = new int[n / 2];
+        for (int i = 0; i < n / 2; i++) {
+            us[i] = perm[2 * i];
+            vs[i] = perm[2 * i + 1];
+        }
+        return union(getSparseGeneral(n, m - n / 2, rng.nextLong()), us, vs);
+    }
+
+    /* STRUCTURED FAMILIES */
+    // Seeded CSR generators for graphs that look more like real inputs
+    // than G(n, p): heavy-tailed degrees, communities, regularity, spatial
+    // locality, and planted hard matching instances. All run in O(n + m)
+    // (expected) time.
+
+    // get Chung-Lu graph with the given expected degrees: u and v are
+    // adjacent with probability min(1, w_u w_v / sum of w). uses the
+    // Miller-Hagberg skipping scheme over vertices sorted by weight
+    public static CSRGraph getChungLu(double[] expectedDegrees, long seed) {
+        int n = expectedDegrees.length;
+        double sum = 0;
+        for (double w : expectedDegrees) {
+            if (w < 0 || Double.isNaN(w)) {
+                throw new IllegalArgumentException("Expected degrees must be nonnegative");
+            }
+            sum += w;
+        }
+        final double total = sum;
+
+        // order vertices by decreasing weight; rows are dealt round robin
+        // to chunks, since early (heavy) rows have the most edges
+        Integer[] boxed = new Integer[n];
+        for (int i = 0; i < n; i++) boxed[i] = i;
+        Arrays.sort(boxed, (x, y) -> Double.compare(expectedDegrees[y], expectedDegrees[x]));
+        int[] order = new int[n];
+        double[] w = new double[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = boxed[i];
+            w[i] = expectedDegrees[order[i]];
+        }
+
+        SplittableRandom[] rngs = splitRandoms(seed, NUM_CHUNKS);
+        EdgeBuffer[] buffers = new EdgeBuffer[NUM_CHUNKS];
+        IntStream.range(0, NUM_CHUNKS).parallel().forEach(c -> {
+            EdgeBuffer buffer = new EdgeBuffer();
+            buffers[c] = buffer;
+            SplittableRandom rng = rngs[c];
+            if (total == 0) return;
+            for (int u = c; u < n - 1; u += NUM_CHUNKS) {
+                int v = u + 1;
+                double p = Math.min(w[u] * w[v] / total, 1);
+                while (v < n && p > 0) {
+                    if (p != 1) {
+                        double skip = Math.floor(Math.log(1 - rng.nextDouble()) / Math.log(1 - p));
+                        if (skip >= n) break;
+                        v += (int) skip;
+                    }
+                    if (v >= n) break;
+                    // accept with the true probability of (u, v), which is
+                    // at most p since weights decrease
+                    double q = Math.min(w[u] * w[v] / total, 1);
+                    if (rng.nextDouble() < q / p) buffer.add(order[u], order[v]);
+                    p = q;
+                    v++;
+                }
+            }
+        });
+        return EdgeBuffer.toCSR(n, buffers);
+    }
+
+    // get Chung-Lu graph with power law expected degrees: the i-th weight
+    // is proportional to (i + 1)^(-1/(exponent - 1)), scaled to the given
+    // average degree. exponent must be > 2 (real networks: 2 to 3)
+    public static CSRGraph getPowerLaw(int n, double avgDegree, double exponent, long seed) {
+        if (exponent <= 2 || avgDegree < 0) {
+            throw new IllegalArgumentException("Need exponent > 2 and avgDegree >= 0");
+        }
+        double[] w = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            w[i] = Math.pow(i + 1, -1 / (exponent - 1));
+            sum += w[i];
+        }
+        double scale = sum == 0 ? 0 : avgDegree * n / sum;
+        for (int i = 0; i < n; i++) w[i] *= scale;
+        return getChungLu(w, seed);
+    }
+
+    // get R-MAT (recursive matrix, a stochastic Kronecker graph) on 2^scale
+    // vertices: each of numEdges edges picks one quadrant of the adjacency
+    // matrix per level, with probabilities a, b, c and 1 - a - b - c.
+    // loops and repeated edges are dropped, so there may be fewer edges.
+    // vertex ids are shuffled, as in Graph500, to hide the skew in ids
+    public static CSRGraph getRMat(int scale, int numEdges, double a, double b,
+    double c, long seed) {
+        if (scale < 0 || scale > 30 || numEdges < 0 || a < 0 || b < 0 || c < 0 ||
+        a + b + c > 1) {
+            throw new IllegalArgumentException("Invalid R-MAT parameters");
+        }
+        int n = 1 << scale;
+        SplittableRandom root = new SplittableRandom(seed);
+        int[] perm = randomPermutation(n, root.split());
+        SplittableRandom[] rngs = splitRandoms(root.nextLong(), NUM_CHUNKS);
+        int[] us = new int[numEdges];
+        int[] vs = new int[numEdges];
+        int chunkSize = (numEdges + NUM_CHUNKS - 1) / NUM_CHUNKS;
+        double ab = a + b;
+        double abc = a + b + c;
+        IntStream.range(0, NUM_CHUNKS).parallel().forEach(chunk -> {
+            SplittableRandom rng = rngs[chunk];
+            int end = Math.min(numEdges, (chunk + 1) * chunkSize);
+            for (int e = chunk * chunkSize; e < end; e++) {
+                int u = 0;
+                int v = 0;
+                for (int bit = scale - 1; bit >= 0; bit--) {
+                    double r = rng.nextDouble();
+                    if (r >= abc) {
+                        u |= 1 << bit;
+                        v |= 1 << bit;
+                    }
+                    else if (r >= ab) u |= 1 << bit;
+                    else if (r >= a) v |= 1 << bit;
+                }
+                us[e] = perm[u];
+                vs[e] = perm[v];
+            }
+        });
+        return CSRGraph.fromEdges(n, us, vs, null, numEdges);
+    }
+
+    // get uniformly random-ish d-regular graph on n vertices, by pairing
+    // up d copies of each vertex and rejecting pairs that would make a loop
+    // or repeated edge (Steger-Wormald); restarts if the pairing gets stuck.
+    // sequential; O(n d^2) expected for small d
+    public static CSRGraph getRandomRegular(int n, int d, long seed) {
+        if (d < 0 || d >= n && n > 0 || ((long) n * d) % 2 == 1) {
+            throw new IllegalArgumentException("No " + d + "-regular graph on " +
+            n + " vertices");
+        }
+        SplittableRandom rng = new SplittableRandom(seed);
+        int numPoints = n * d;
+        int[] points = new int[numPoints];
+        int[] adj = new int[numPoints]; // adj[v*d .. v*d+d-1]: nbrs so far
+        int[] degree = new int[n];
+        int[] us = new int[numPoints / 2];
+        int[] vs = new int[numPoints / 2];
+
+        while (true) {
+            for (int i = 0; i < numPoints; i++) points[i] = i / Math.max(d, 1);
+            Arrays.fill(degree, 0);
+            int remaining = numPoints;
+            int e = 0;
+            boolean stuck = false;
+            while (remaining > 0 && !stuck) {
+                int tries = 0;
+                while (true) {
+                    int i = rng.nextInt(remaining);
+                    int j = rng.nextInt(remaining);
+                    int u = points[i];
+                    int v = points[j];
+                    if (u != v && !hasPartialNbr(adj, degree, d, u, v)) {
+                        adj[u * d + degree[u]++] = v;
+                        adj[v * d + degree[v]++] = u;
+                        us[e] = u;
+                        vs[e] = v;
+                        e++;
+                        // remove points i and j (larger index first)
+                        points[Math.max(i, j)] = points[--remaining];
+                        points[Math.min(i, j)] = points[--remaining];
+                        break;
+                    }
+                    if (++tries > 64 && !hasSuitablePair(points, remaining, adj, degree, d)) {
+                        stuck = true;
+                        break;
+                    }
+                }
+            }
+            if (!stuck) return CSRGraph.fromEdges(n, us, vs, null, e);
+        }
+    }
+
+    // get rows x cols grid graph; vertex r * cols + c is adjacent to the
+    // vertices above, below, left and right of it
+    public static CSRGraph getGrid(int rows, int cols) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Grid dimensions must be nonnegative");
+        }
+        int n = rows * cols;
+        int m = Math.max(0, rows * (cols - 1)) + Math.max(0, (rows - 1) * cols);
+        int[] us = new int[m];
+        int[] vs = new int[m];
+        int e = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int v = r * cols + c;
+                if (c + 1 < cols) {
+                    us[e] = v;
+                    vs[e++] = v + 1;
+                }
+                if (r + 1 < rows) {
+                    us[e] = v;
+                    vs[e++] = v + cols;
+                }
+            }
+        }
+        return CSRGraph.fromEdges(n, us, vs, null, e);
+    }
+
+    // get random geometric graph: n uniform points in the unit square,
+    // adjacent iff within distance radius. points are bucketed into cells
+    // of side at least radius, so only neighboring cells are compared
+    public static CSRGraph getRandomGeometric(int n, double radius, long seed) {
+        if (radius < 0 || Double.isNaN(radius)) {
+            throw new IllegalArgumentException("Radius must be nonnegative");
+        }
+        SplittableRandom rng = new SplittableRandom(seed);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = rng.nextDouble();
+            y[i] = rng.nextDouble();
+        }
+
+        // counting sort of points into cells; 1 / side >= radius, so points
+        // within radius are never more than one cell apart
+        int side = (int) Math.max(1, Math.min(Math.floor(1 / Math.max(radius, 1e-9)),
+        Math.max(1, Math.sqrt(n))));
+        int[] cellStart = new int[side * side + 1];
+        int[] cellOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            int cx = Math.min(side - 1, (int) (x[i] * side));
+            int cy = Math.min(side - 1, (int) (y[i] * side));
+            cellOf[i] = cx * side + cy;
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < side * side; c++) cellStart[c + 1] += cellStart[c];
+        int[] cellPoints = new int[n];
+        int[] fill = Arrays.copyOf(cellStart, side * side);
+        for (int i = 0; i < n; i++) cellPoints[fill[cellOf[i]]++] = i;
+
+        double r2 = radius * radius;
+        EdgeBuffer[] buffers = new EdgeBuffer[side];
+        IntStream.range(0, side).parallel().forEach(cx -> {
+            EdgeBuffer buffer = new EdgeBuffer();
+            buffers[cx] = buffer;
+            for (int cy = 0; cy < side; cy++) {
+                int cell = cx * side + cy;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = cellPoints[k];
+                    // compare against points in this and adjacent cells;
+                    // each pair once, from its smaller point
+                    for (int dx = -1; dx <= 1; dx++) {
+                        for (int dy = -1; dy <= 1; dy++) {
+                            int nx = cx + dx;
+                            int ny = cy + dy;
+                            if (nx < 0 || ny < 0 || nx >= side || ny >= side) continue;
+                            int other = nx * side + ny;
+                            for (int l = cellStart[other]; l < cellStart[other + 1]; l++) {
+                                int j = cellPoints[l];
+                                if (j <= i) continue;
+                                double ddx = x[i] - x[j];
+                                double ddy = y[i] - y[j];
+                                if (ddx * ddx + ddy * ddy <= r2) buffer.add(i, j);
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        return EdgeBuffer.toCSR(n, buffers);
+    }
+
+    // get planted hard matching instance: numCycles odd cycles of length
+    // cycleLength, consecutive ones stitched by an edge between random
+    // vertices, with all vertex ids shuffled. augmenting paths must thread
+    // long chains of blossoms, so this stresses blossom contraction (cf.
+    // testing/nexists_delta_hitting_matching/stitched_5cycles)
+    public static CSRGraph getStitchedOddCycles(int numCycles, int cycleLength, long seed) {
+        if (numCycles < 1 || cycleLength < 3 || cycleLength % 2 == 0) {
+            throw new IllegalArgumentException("Need at least one odd cycle of length >= 3");
+        }
+        int n = numCycles * cycleLength;
+        SplittableRandom rng = new SplittableRandom(seed);
+        int[] perm = randomPermutation(n, rng);
+        int m = n + numCycles - 1;
+        int[] us = new int[m];
+        int[] vs = new int[m];
+        int e = 0;
+        for (int c = 0; c < numCycles; c++) {
+            int first = c * cycleLength;
+            for (int i = 0; i < cycleLength; i++) {
+                us[e] = perm[first + i];
+                vs[e++] = perm[first + (i + 1) % cycleLength];
+            }
+            if (c + 1 < numCycles) {
+                us[e] = perm[first + rng.nextInt(cycleLength)];
+                vs[e++] = perm[first + cycleLength + rng.nextInt(cycleLength)];
+            }
+        }
+        return CSRGraph.fromEdges(n, us, vs, null, e);
+    }
+
+    private static void checkProbability(double p) {
+        if (p > 1 || p < 0 || Double.isNaN(p)) {
+            throw new IllegalArgumentException("Not a valid probability");
+        }
+    }
+
+    // k generators split off a generator seeded with seed, in order
+    private static SplittableRandom[] splitRandoms(long seed, int k) {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] rngs = new SplittableRandom[k];
+        for (int i = 0; i < k; i++) rngs[i] = root.split();
+        return rngs;
+    }
+
+    // sorted array of k distinct values drawn uniformly from [0, bound).
+    // draws with replacement in parallel chunks, dedupes, and tops up until
+    // there are enough, then keeps a random k of them
+    private static long[] sampleDistinct(long bound, int k, long seed) {
+        SplittableRandom root = new SplittableRandom(seed);
+        long[] picked = new long[0];
+        while (picked.length < k) {
+            int need = k - picked.length;
+            int draw = need + need / 8 + 16;
+            long[] fresh = Arrays.copyOf(picked, picked.length + draw);
+            int chunkSize = (draw + NUM_CHUNKS - 1) / NUM_CHUNKS;
+            SplittableRandom[] rngs = splitRandoms(root.nextLong(), NUM_CHUNKS);
+            int offset = picked.length;
+            IntStream.range(0, NUM_CHUNKS).parallel().forEach(c -> {
+                int end = Math.min(draw, (c + 1) * chunkSize);
+                for (int i = c * chunkSize; i < end; i++) {
+                    fresh[offset + i] = rngs[c].nextLong(bound);
+                }
+            });
+            Arrays.parallelSort(fresh);
+            int size = 0;
+            for (int i = 0; i < fresh.length; i++) {
+                if (i == 0 || fresh[i] != fresh[i - 1]) fresh[size++] = fresh[i];
+            }
+            picked = Arrays.copyOf(fresh, size);
+        }
+        if (picked.length > k) {
+            // partial Fisher-Yates: a uniform k-subset of the picked values
+            for (int i = 0; i < k; i++) {
+                int j = i + root.nextInt(picked.length - i);
+                long tmp = picked[i];
+                picked[i] = picked[j];
+                picked[j] = tmp;
+            }
+            picked = Arrays.copyOf(picked, k);
+            Arrays.parallelSort(picked);
+        }
+        return picked;
+    }
+
+    // decode index of pair (v, w), w < v, in the lower triangle and append
+    // it to the edge lists at position e; returns next position
+    private static int addPair(long index, int[] us, int[] vs, int e) {
+        long v = (long) ((1 + Math.sqrt(1 + 8.0 * index)) / 2);
+        while (v * (v - 1) / 2 > index) v--;
+        while ((v + 1) * v / 2 <= index) v++;
+        us[e] = (int) v;
+        vs[e] = (int) (index - v * (v - 1) / 2);
+        return e + 1;
+    }
+
+    // random regular helper: is v among the neighbors u has so far?
+    private static boolean hasPartialNbr(int[] adj, int[] degree, int d, int u, int v) {
+        for (int k = 0; k < degree[u]; k++) {
+            if (adj[u * d + k] == v) return true;
+        }
+        return false;
+    }
+
+    // random regular helper: can any two remaining points still be paired?
+    private static boolean hasSuitablePair(int[] points, int remaining, int[] adj,
+    int[] degree, int d) {
+        for (int i = 0; i < remaining; i++) {
+            for (int j = i + 1; j < remaining; j++) {
+                int u = points[i];
+                int v = points[j];
+                if (u != v && !hasPartialNbr(adj, degree, d, u, v)) return true;
+            }
+        }
+        return false;
+    }
+
+    // uniformly random permutation of 0 .. n-1
+    private static int[] randomPermutation(int n, SplittableRandom rng) {
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            int j = rng.nextInt(i + 1);
+            perm[i] = perm[j];
+            perm[j] = i;
+        }
+        return perm;
+    }
+
+    // g plus the edges (us[i], vs[i]); repeated edges are kept once
+    private static CSRGraph union(CSRGraph g, int[] us, int[] vs) {
+        int n = g.getNumVertices();
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int m = g.getNumEdges();
+        int[] allU = Arrays.copyOf(us, us.length + m);
+        int[] allV = Arrays.copyOf(vs, vs.length + m);
+        int e = us.length;
+        for (int v = 0; v < n; v++) {
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (targets[k] < v) continue;
+                allU[e] = v;
+                allV[e] = targets[k];
+                e++;
+            }
+        }
+        return CSRGraph.fromEdges(n, allU, allV, null, e);
+    }
+
+    // growable pair of edge lists, filled by one chunk
+    private static class EdgeBuffer {
+        private int[] us = new int[16];
+        private int[] vs = new int[16];
+        private int size;
+
+        void add(int u, int v) {
+            if (size == us.length) {
+                us = Arrays.copyOf(us, 2 * size);
+                vs = Arrays.copyOf(vs, 2 * size);
+            }
+            us[size] = u;
+            vs[size] = v;
+            size++;
+        }
+
+        // concatenate chunks, in order, into a CSRGraph on n vertices
+        static CSRGraph toCSR(int n, EdgeBuffer[] buffers) {
+            long total = 0;
+            for (EdgeBuffer b : buffers) total += b.size;
+            if (total > Integer.MAX_VALUE / 2) {
+                throw new IllegalArgumentException("Too many edges for a CSRGraph");
+            }
+            int[] us = new int[(int) total];
+            int[] vs = new int[(int) total];
+            int e = 0;
+            for (EdgeBuffer b : buffers) {
+                System.arraycopy(b.us, 0, us, e, b.size);
+                System.arraycopy(b.vs, 0, vs, e, b.size);
+                e += b.size;
+            }
+            return CSRGraph.fromEdges(n, us, vs, null, e);
+        }
+    }
+
     // does vertex v have vertex u as a neighbor?
     private static boolean hasNbr(HashSet<Edge> v, int u) {
         for (Edge e : v) {
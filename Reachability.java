@@ -0,0 +1,217 @@
+/*******************************************************************************
+* Reachability queries on an undirected CSRGraph.
+*   - existsPath: bidirectional BFS, always growing the smaller frontier by
+*     one level and stopping as soon as the two searches touch. Visited marks
+*     are stamped per query, so nothing of size n is cleared or allocated,
+*     and a query only costs the vertices it touches
+*   - existsPaths: batch queries. Components are labeled once (O(n + m)),
+*     after which every pair, and every later single query, is O(1)
+*   - componentLabels: the labeling alone, as an array that callers can
+*     share between threads (Graph.existsPath does)
+*
+* An engine keeps its buffers between queries, so it is not thread safe;
+* use one engine per thread.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class Reachability {
+
+    private CSRGraph g;
+    private int n;
+    private int[] offsets;
+    private int[] targets;
+    private int[] mark; // 2 * stamp if seen from u, 2 * stamp + 1 if from v
+    private int stamp;
+    private int[] queueU;
+    private int[] queueV;
+    private int[] component; // lazily built component labels
+    private int numComponents;
+
+    // reachability engine for g
+    public Reachability(CSRGraph g) {
+        this.g = g;
+        this.n = g.getNumVertices();
+        this.offsets = g.getOffsets();
+        this.targets = g.getTargets();
+        this.mark = new int[n];
+        this.queueU = new int[n];
+        this.queueV = new int[n];
+    }
+
+    // reachability engine for g
+    public Reachability(Graph g) {
+        this(g.toCSR());
+    }
+
+    // is there a path between u and v? throws IllegalArgumentException if
+    // either vertex does not exist
+    public boolean existsPath(int u, int v) {
+        checkVertex(u);
+        checkVertex(v);
+        if (u == v) return true;
+        if (component != null) return component[u] == component[v];
+
+        if (stamp == Integer.MAX_VALUE / 2) {
+            Arrays.fill(mark, 0);
+            stamp = 0;
+        }
+        stamp++;
+        int fromU = 2 * stamp;
+        int fromV = 2 * stamp + 1;
+        mark[u] = fromU;
+        mark[v] = fromV;
+        // queues hold one BFS level at a time: [head, tail)
+        int headU = 0, tailU = 0, headV = 0, tailV = 0;
+        queueU[tailU++] = u;
+        queueV[tailV++] = v;
+
+        while (headU < tailU && headV < tailV) {
+            boolean growU = tailU - headU <= tailV - headV;
+            int[] queue = growU ? queueU : queueV;
+            int own = growU ? fromU : fromV;
+            int other = growU ? fromV : fromU;
+            int head = growU ? headU : headV;
+            int tail = growU ? tailU : tailV;
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int x = queue[head++];
+                for (int k = offsets[x]; k < offsets[x + 1]; k++) {
+                    int y = targets[k];
+                    if (mark[y] == other) return true;
+                    if (mark[y] == own) continue;
+                    mark[y] = own;
+                    queue[tail++] = y;
+                }
+            }
+            if (growU) {
+                headU = head;
+                tailU = tail;
+            }
+            else {
+                headV = head;
+                tailV = tail;
+            }
+        }
+        return false;
+    }
+
+    // answers existsPath(us[i], vs[i]) for every i, labeling components once
+    public boolean[] existsPaths(int[] us, int[] vs) {
+        if (us.length != vs.length) {
+            throw new IllegalArgumentException("Need as many sources as targets.");
+        }
+        labelComponents();
+        boolean[] answers = new boolean[us.length];
+        for (int i = 0; i < us.length; i++) answers[i] = existsPath(us[i], vs[i]);
+        return answers;
+    }
+
+    // returns component of v (0 .. k-1), labeling components if needed
+    public int getComponent(int v) {
+        checkVertex(v);
+        labelComponents();
+        return this.component[v];
+    }
+
+    // returns number of components
+    public int getNumComponents() {
+        labelComponents();
+        return this.numComponents;
+    }
+
+    // label the components by BFS, once
+    private void labelComponents() {
+        if (component != null) return;
+        int[] labels = componentLabels(g);
+        int count = 0;
+        for (int label : labels) count = Math.max(count, label + 1);
+        this.numComponents = count;
+        this.component = labels;
+    }
+
+    // returns component of every vertex of g (0 .. k-1), by BFS. O(n + m)
+    public static int[] componentLabels(CSRGraph g) {
+        int n = g.getNumVertices();
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int[] labels = new int[n];
+        Arrays.fill(labels, -1);
+        int[] queue = new int[n];
+        int count = 0;
+        for (int root = 0; root < n; root++) {
+            if (labels[root] != -1) continue;
+            int head = 0;
+            int tail = 0;
+            labels[root] = count;
+            queue[tail++] = root;
+            while (head < tail) {
+                int x = queue[head++];
+                for (int k = offsets[x]; k < offsets[x + 1]; k++) {
+                    int y = targets[k];
+                    if (labels[y] != -1) continue;
+                    labels[y] = count;
+                    queue[tail++] = y;
+                }
+            }
+            count++;
+        }
+        return labels;
+    }
+
+    private void checkVertex(int v) {
+        if (v < 0 || v >= n) {
+            throw new IllegalArgumentException("Vertex " + v + " does not exist.");
+        }
+    }
+
+    // run time trials: single bidirectional queries vs batch queries on a
+    // random graph with n vertices and m edges
+    public static void runTimeTrials(int n, long m, int queries) {
+        CSRGraph g = RandomGraph.getSparseGeneral(n, m, 1);
+        SplittableRandom random = new SplittableRandom(1);
+        int[] us = new int[queries];
+        int[] vs = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            us[i] = random.nextInt(n);
+            vs[i] = random.nextInt(n);
+        }
+
+        Reachability single = new Reachability(g);
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < queries; i++) {
+            if (single.existsPath(us[i], vs[i])) found++;
+        }
+        double singleTime = (System.nanoTime() - start) / 1e3 / queries;
+
+        start = System.nanoTime();
+        boolean[] answers = new Reachability(g).existsPaths(us, vs);
+        long batchTime = (System.nanoTime() - start) / 1000000;
+        int batchFound = 0;
+        for (boolean answer : answers) {
+            if (answer) batchFound++;
+        }
+        if (batchFound != found) {
+            throw new IllegalStateException("Single and batch queries disagree.");
+        }
+        System.out.println(found + "/" + queries + " connected; single: " +
+        String.format("%.1f", singleTime) + "us/query, batch: " + batchTime + "ms total");
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        if (args.length == 3) {
+            runTimeTrials(Integer.parseInt(args[0]), Long.parseLong(args[1]),
+            Integer.parseInt(args[2]));
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        Reachability reach = new Reachability(g);
+        int last = g.getNumVertices() - 1;
+        System.out.println("Is there a path between vertex 0 and " + last + "? " +
+            reach.existsPath(0, last));
+        System.out.println("Components: " + reach.getNumComponents());
+    }
+}
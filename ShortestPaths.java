@@ -0,0 +1,443 @@
+/*******************************************************************************
+* Weighted shortest paths on a CSRGraph (edge weights must be >= 0).
+*   - distancesFrom: Dijkstra with an indexed binary heap. O((n + m) log n)
+*   - distance, path: bidirectional Dijkstra, growing a search from each end
+*     and stopping once the two smallest keys add up to the best meeting
+*     distance. Searches are reset by stamps, so a query only costs the
+*     vertices it touches, not O(n)
+*   - deltaStepping: parallel single source distances. Vertices are kept in
+*     buckets of width delta; a bucket is settled by relaxing its light
+*     edges (weight <= delta) in parallel rounds, then its heavy edges once.
+*     Relaxations race through compare-and-set on the distance array
+*
+* An engine keeps its buffers between queries, so it is not thread safe;
+* use one engine per thread.
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+public class ShortestPaths {
+
+    private static final long INFINITY = Long.MAX_VALUE;
+
+    private CSRGraph g;
+    private int n;
+    private int[] offsets;
+    private int[] targets;
+    private int[] weights;
+    private Search forward;
+    private Search backward;
+    private int lastMeet = -1; // meeting vertex of the last distance query
+
+    // shortest path engine for g. throws IllegalArgumentException if g has
+    // a negative edge weight
+    public ShortestPaths(CSRGraph g) {
+        this.g = g;
+        this.n = g.getNumVertices();
+        this.offsets = g.getOffsets();
+        this.targets = g.getTargets();
+        this.weights = g.getWeights();
+        for (int w : weights) {
+            if (w < 0) {
+                throw new IllegalArgumentException("Edge weights must be" +
+                " nonnegative for shortest paths.");
+            }
+        }
+        this.forward = new Search(n);
+        this.backward = new Search(n);
+    }
+
+    // shortest path engine for g
+    public ShortestPaths(Graph g) {
+        this(g.toCSR());
+    }
+
+    // returns distance from source to every vertex (-1 if unreachable)
+    public long[] distancesFrom(int source) {
+        checkVertex(source);
+        Search s = forward;
+        s.reset();
+        s.offer(source, 0, -1);
+        while (!s.isEmpty()) relaxAll(s, s.pop());
+
+        long[] dist = new long[n];
+        for (int v = 0; v < n; v++) dist[v] = s.reached(v) ? s.dist[v] : -1;
+        return dist;
+    }
+
+    // returns distance from s to t, or -1 if t is unreachable
+    public long distance(int s, int t) {
+        checkVertex(s);
+        checkVertex(t);
+        forward.reset();
+        backward.reset();
+        forward.offer(s, 0, -1);
+        backward.offer(t, 0, -1);
+        long best = s == t ? 0 : INFINITY;
+        lastMeet = s == t ? s : -1;
+
+        while (!forward.isEmpty() && !backward.isEmpty()) {
+            if (forward.minKey() + backward.minKey() >= best) break;
+            // grow the side with the smaller frontier
+            Search side = forward.size <= backward.size ? forward : backward;
+            Search other = side == forward ? backward : forward;
+            int v = side.pop();
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int u = targets[k];
+                long d = side.dist[v] + weights[k];
+                side.offer(u, d, v);
+                if (other.reached(u) && d + other.dist[u] < best) {
+                    best = d + other.dist[u];
+                    lastMeet = u;
+                }
+            }
+        }
+        return best == INFINITY ? -1 : best;
+    }
+
+    // returns the vertices of a shortest path from s to t, or null if t is
+    // unreachable
+    public int[] path(int s, int t) {
+        if (distance(s, t) == -1) return null;
+        ArrayDeque<Integer> path = new ArrayDeque<Integer>();
+        for (int v = lastMeet; v != -1; v = forward.parent[v]) path.addFirst(v);
+        for (int v = backward.parent[lastMeet]; v != -1; v = backward.parent[v]) path.addLast(v);
+        int[] vertices = new int[path.size()];
+        int i = 0;
+        for (int v : path) vertices[i++] = v;
+        return vertices;
+    }
+
+    // relax every edge out of settled vertex v
+    private void relaxAll(Search s, int v) {
+        for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+            s.offer(targets[k], s.dist[v] + weights[k], v);
+        }
+    }
+
+    private void checkVertex(int v) {
+        if (v < 0 || v >= n) {
+            throw new IllegalArgumentException("Vertex " + v + " does not exist.");
+        }
+    }
+
+    // one Dijkstra search: distances, parents and an indexed binary heap,
+    // all valid only for vertices stamped with the current search
+    private static class Search {
+        long[] dist;
+        int[] parent;
+        int[] stamp;
+        int current;
+        int[] heap;
+        int[] pos; // position in heap, or -1 once settled
+        int size;
+
+        Search(int n) {
+            dist = new long[n];
+            parent = new int[n];
+            stamp = new int[n];
+            heap = new int[n];
+            pos = new int[n];
+        }
+
+        void reset() {
+            current++;
+            size = 0;
+        }
+
+        boolean reached(int v) {
+            return stamp[v] == current;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long minKey() {
+            return dist[heap[0]];
+        }
+
+        // lower the tentative distance of v to d, if that is an improvement
+        void offer(int v, long d, int from) {
+            if (stamp[v] != current) {
+                stamp[v] = current;
+                dist[v] = d;
+                parent[v] = from;
+                pos[v] = size;
+                heap[size++] = v;
+                siftUp(pos[v]);
+            }
+            else if (pos[v] != -1 && d < dist[v]) {
+                dist[v] = d;
+                parent[v] = from;
+                siftUp(pos[v]);
+            }
+        }
+
+        // remove and return the vertex with the smallest distance
+        int pop() {
+            int v = heap[0];
+            pos[v] = -1;
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                pos[heap[0]] = 0;
+                siftDown(0);
+            }
+            return v;
+        }
+
+        private void siftUp(int i) {
+            int v = heap[i];
+            while (i > 0) {
+                int parentIndex = (i - 1) / 2;
+                if (dist[heap[parentIndex]] <= dist[v]) break;
+                heap[i] = heap[parentIndex];
+                pos[heap[i]] = i;
+                i = parentIndex;
+            }
+            heap[i] = v;
+            pos[v] = i;
+        }
+
+        private void siftDown(int i) {
+            int v = heap[i];
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && dist[heap[child + 1]] < dist[heap[child]]) child++;
+                if (dist[heap[child]] >= dist[v]) break;
+                heap[i] = heap[child];
+                pos[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = v;
+            pos[v] = i;
+        }
+    }
+
+    /* DELTA-STEPPING */
+
+    // parallel distances from source on the common fork-join pool, with
+    // bucket width max weight / average degree (at least 1)
+    public static long[] deltaStepping(CSRGraph g, int source) {
+        int maxWeight = 1;
+        for (int w : g.getWeights()) maxWeight = Math.max(maxWeight, w);
+        int n = g.getNumVertices();
+        long avgDegree = n == 0 ? 1 : Math.max(1, g.getSumDegrees() / n);
+        return deltaStepping(g, source, Math.max(1, maxWeight / avgDegree),
+            ForkJoinPool.commonPool());
+    }
+
+    // parallel distances from source (-1 if unreachable), with buckets of
+    // width delta, on pool
+    public static long[] deltaStepping(CSRGraph g, int source, long delta, ForkJoinPool pool) {
+        int n = g.getNumVertices();
+        if (source < 0 || source >= n) {
+            throw new IllegalArgumentException("Vertex " + source + " does not exist.");
+        }
+        if (delta < 1) throw new IllegalArgumentException("Need delta >= 1");
+        for (int w : g.getWeights()) {
+            if (w < 0) {
+                throw new IllegalArgumentException("Edge weights must be" +
+                " nonnegative for shortest paths.");
+            }
+        }
+        try {
+            return pool.submit(() -> new DeltaStepping(g, delta).run(source)).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during delta-stepping.", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Delta-stepping failed.", e.getCause());
+        }
+    }
+
+    private static class DeltaStepping {
+        private int n;
+        private int[] offsets;
+        private int[] targets;
+        private int[] weights;
+        private long delta;
+        private AtomicLongArray dist;
+        private boolean[] settled;
+        private TreeMap<Long, IntList> buckets = new TreeMap<Long, IntList>();
+
+        DeltaStepping(CSRGraph g, long delta) {
+            this.n = g.getNumVertices();
+            this.offsets = g.getOffsets();
+            this.targets = g.getTargets();
+            this.weights = g.getWeights();
+            this.delta = delta;
+            this.dist = new AtomicLongArray(n);
+            this.settled = new boolean[n];
+        }
+
+        long[] run(int source) {
+            for (int v = 0; v < n; v++) dist.set(v, INFINITY);
+            dist.set(source, 0);
+            bucket(0).add(source);
+
+            while (!buckets.isEmpty()) {
+                Map.Entry<Long, IntList> first = buckets.pollFirstEntry();
+                long index = first.getKey();
+                IntList inBucket = new IntList();
+                int[] frontier = current(first.getValue().toArray(), index);
+                // light edges, in rounds, until the bucket stops changing
+                while (frontier.length > 0) {
+                    for (int v : frontier) {
+                        settled[v] = true;
+                        inBucket.add(v);
+                    }
+                    int[] improved = relax(frontier, true);
+                    IntList again = new IntList();
+                    for (int u : improved) {
+                        long d = dist.get(u);
+                        if (d / delta == index) {
+                            if (settled[u]) settled[u] = false;
+                            again.add(u);
+                        }
+                        else bucket(d / delta).add(u);
+                    }
+                    frontier = current(again.toArray(), index);
+                }
+                // heavy edges, once: they only reach later buckets
+                for (int u : relax(inBucket.toArray(), false)) {
+                    bucket(dist.get(u) / delta).add(u);
+                }
+            }
+
+            long[] result = new long[n];
+            for (int v = 0; v < n; v++) {
+                long d = dist.get(v);
+                result[v] = d == INFINITY ? -1 : d;
+            }
+            return result;
+        }
+
+        // the distinct vertices of candidates whose distance is still in
+        // bucket index and that are not settled
+        private int[] current(int[] candidates, long index) {
+            IntList result = new IntList();
+            for (int v : candidates) {
+                if (settled[v] || dist.get(v) / delta != index) continue;
+                settled[v] = true; // dedupe; cleared again below
+                result.add(v);
+            }
+            int[] vertices = result.toArray();
+            for (int v : vertices) settled[v] = false;
+            return vertices;
+        }
+
+        // relax the light (or heavy) edges out of vertices in parallel;
+        // returns the targets whose distance went down (with repeats)
+        private int[] relax(int[] vertices, boolean light) {
+            return IntStream.of(vertices).parallel().flatMap(v -> {
+                long dv = dist.get(v);
+                IntStream.Builder improved = IntStream.builder();
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    if ((weights[k] <= delta) != light) continue;
+                    int u = targets[k];
+                    long d = dv + weights[k];
+                    long old = dist.get(u);
+                    while (d < old) {
+                        if (dist.compareAndSet(u, old, d)) {
+                            improved.add(u);
+                            break;
+                        }
+                        old = dist.get(u);
+                    }
+                }
+                return improved.build();
+            }).toArray();
+        }
+
+        private IntList bucket(long index) {
+            IntList list = buckets.get(index);
+            if (list == null) {
+                list = new IntList();
+                buckets.put(index, list);
+            }
+            return list;
+        }
+    }
+
+    // growable int array
+    private static class IntList {
+        private int[] items = new int[4];
+        private int size;
+
+        void add(int x) {
+            if (size == items.length) items = Arrays.copyOf(items, 2 * size);
+            items[size++] = x;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+
+    // run time trials: Dijkstra vs delta-stepping from one source, and
+    // bidirectional point-to-point queries, on a random graph with n
+    // vertices, m edges and weights in 1 .. maxWeight
+    public static void runTimeTrials(int n, long m, int maxWeight) {
+        CSRGraph unweighted = RandomGraph.getSparseGeneral(n, m, 1);
+        int[] weights = unweighted.getWeights().clone();
+        // same random weight in both directions of each edge
+        int[] offsets = unweighted.getOffsets();
+        int[] targets = unweighted.getTargets();
+        for (int v = 0; v < n; v++) {
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                long a = Math.min(v, targets[k]);
+                long b = Math.max(v, targets[k]);
+                weights[k] = 1 + (int) (((a * n + b) * 0x9E3779B97F4A7C15L >>> 17) % maxWeight);
+            }
+        }
+        CSRGraph g = new CSRGraph(n, offsets, targets, weights);
+        ShortestPaths sp = new ShortestPaths(g);
+
+        long start = System.nanoTime();
+        long[] dijkstra = sp.distancesFrom(0);
+        long dijkstraTime = (System.nanoTime() - start) / 1000000;
+
+        start = System.nanoTime();
+        long[] stepping = deltaStepping(g, 0);
+        long steppingTime = (System.nanoTime() - start) / 1000000;
+        if (!Arrays.equals(dijkstra, stepping)) {
+            throw new IllegalStateException("Dijkstra and delta-stepping disagree.");
+        }
+
+        SplittableRandom random = new SplittableRandom(1);
+        int queries = 1000;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            int t = random.nextInt(n);
+            if (sp.distance(0, t) != dijkstra[t]) {
+                throw new IllegalStateException("Bidirectional Dijkstra disagrees.");
+            }
+        }
+        double queryTime = (System.nanoTime() - start) / 1e6 / queries;
+        System.out.println("Dijkstra: " + dijkstraTime + "ms, delta-stepping: " +
+        steppingTime + "ms, point-to-point: " + String.format("%.3f", queryTime) + "ms/query");
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        if (args.length == 3) {
+            runTimeTrials(Integer.parseInt(args[0]), Long.parseLong(args[1]),
+            Integer.parseInt(args[2]));
+            return;
+        }
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        ShortestPaths sp = new ShortestPaths(g);
+        System.out.println("Distances from 0: " + Arrays.toString(sp.distancesFrom(0)));
+        int last = g.getNumVertices() - 1;
+        System.out.println("Shortest path from 0 to " + last + ": " +
+            Arrays.toString(sp.path(0, last)));
+    }
+}
@@ -0,0 +1,474 @@
+/*******************************************************************************
+* Edmonds' blossom algorithm on a CSRGraph, using only primitive arrays.
+* Blossoms are not contracted into new graphs (as Blossom does); instead the
+* vertices of each blossom form a disjoint set labeled with its base, and
+* augmenting paths are read back through parent pointers that are rerouted
+* around each blossom. Contracting a blossom only touches its cycle.
+*
+* Only the vertices of the current alternating tree are reset between
+* searches, so a search costs about O(size of tree + edges scanned), not
+* O(n). The search starts from a Karp-Sipser greedy matching, and the trees
+* of failed searches are dropped for good.
+*
+* Optimality can be certified by a Tutte-Berge barrier S (getTutteBergeSet):
+* G - S has exactly |S| + (number of free vertices) odd components, which no
+* matching can beat. The barrier comes from one search rooted at every free
+* vertex at once, and isTutteBergeWitness checks it in O(n + m).
+* Time complexity: O(n * m) worst case, much less in practice
+*
+* Author: Jesse Goodman
+******************************************************************************/
+import java.util.*;
+
+public class SparseBlossom {
+
+    private CSRGraph g;
+    private int n;
+    private int[] offsets;
+    private int[] targets;
+
+    private int[] match; // mate of each vertex, or -1
+    private int[] p; // parent of odd vertices in the alternating tree
+    private int[] blossomSet; // disjoint set forest of blossoms
+    private int[] baseOf; // base of the blossom whose set root is v
+    private boolean[] even; // outer vertices of the current tree
+    private int[] queue;
+    private int[] path; // vertices on the path being contracted
+    private int[] tree; // vertices touched by the current search
+    private int treeSize;
+    private int[] treeMark; // treeMark[v] == searchStamp iff v in tree
+    private int searchStamp;
+    private int[] lcaMark;
+    private int lcaStamp;
+    private boolean[] dead; // in a failed search tree; never on an augmenting path
+    private int[] freeDegree; // greedy: free neighbors of each vertex
+    private int matchingSize;
+
+    // find a maximum matching of g
+    public SparseBlossom(CSRGraph g) {
+        this();
+        solve(g);
+    }
+
+    // find a maximum matching of g
+    public SparseBlossom(Graph g) {
+        this(g.toCSR());
+    }
+
+    // engine without a graph; call solve or load before use. buffers are
+    // kept between calls, so one engine can solve many small graphs
+    public SparseBlossom() {
+        this.match = new int[0];
+        this.dead = new boolean[0];
+    }
+
+    // find a maximum matching of g, reusing this engine's buffers
+    public void solve(CSRGraph g) {
+        load(g);
+        greedyMatch();
+        for (int v = 0; v < n; v++) {
+            if (match[v] != -1) continue;
+            int free = findPath(v);
+            if (free != -1) augment(free);
+            else {
+                // the tree of a failed search is never touched by a later
+                // augmenting path, so drop it instead of searching it again
+                for (int i = 0; i < treeSize; i++) dead[tree[i]] = true;
+            }
+        }
+    }
+
+    // point this engine at g with an empty matching, without solving
+    void load(CSRGraph g) {
+        clearTree();
+        this.g = g;
+        this.n = g.getNumVertices();
+        this.offsets = g.getOffsets();
+        this.targets = g.getTargets();
+        if (match.length < n) {
+            int len = Math.max(n, 2 * match.length);
+            match = new int[len];
+            p = new int[len];
+            blossomSet = new int[len];
+            baseOf = new int[len];
+            even = new boolean[len];
+            queue = new int[len];
+            path = new int[len];
+            tree = new int[len];
+            treeMark = new int[len];
+            lcaMark = new int[len];
+            dead = new boolean[len];
+            freeDegree = new int[len];
+            for (int v = 0; v < len; v++) {
+                blossomSet[v] = v;
+                baseOf[v] = v;
+            }
+            Arrays.fill(p, -1);
+        }
+        Arrays.fill(match, 0, n, -1);
+        Arrays.fill(dead, 0, n, false);
+        treeSize = 0;
+        matchingSize = 0;
+    }
+
+    // replace the matching with mates (a valid matching of the loaded graph)
+    void setMatching(int[] mates) {
+        clearTree();
+        matchingSize = 0;
+        for (int v = 0; v < n; v++) {
+            match[v] = mates[v];
+            if (mates[v] > v) matchingSize++;
+        }
+    }
+
+    // Karp-Sipser greedy matching: while some free vertex has exactly one
+    // free neighbor, match that edge (some max matching contains it); else
+    // match any free vertex to its first free neighbor. on sparse graphs
+    // this leaves far fewer free vertices than plain greedy, and each
+    // augmenting search it saves can cost O(m). O(n + m)
+    void greedyMatch() {
+        int top = 0;
+        for (int v = 0; v < n; v++) {
+            freeDegree[v] = 0;
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (match[targets[k]] == -1) freeDegree[v]++;
+            }
+            if (match[v] == -1 && freeDegree[v] == 1) queue[top++] = v;
+        }
+
+        int next = 0; // scan position for the fallback rule
+        while (true) {
+            int v;
+            if (top > 0) v = queue[--top];
+            else {
+                while (next < n && (match[next] != -1 || freeDegree[next] == 0)) next++;
+                if (next == n) break;
+                v = next;
+            }
+            if (match[v] != -1 || freeDegree[v] == 0) continue;
+
+            int u = -1;
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (match[targets[k]] == -1) {
+                    u = targets[k];
+                    break;
+                }
+            }
+            if (u == -1) {
+                // stale count (a row without its mirror); nothing to match
+                freeDegree[v] = 0;
+                continue;
+            }
+            match[u] = v;
+            match[v] = u;
+            matchingSize++;
+
+            // u and v leave the free subgraph
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                int w = targets[k];
+                if (--freeDegree[w] == 1 && match[w] == -1) queue[top++] = w;
+            }
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int w = targets[k];
+                if (--freeDegree[w] == 1 && match[w] == -1) queue[top++] = w;
+            }
+        }
+    }
+
+    // grow an alternating tree from free vertex root; returns a free vertex
+    // reached by an augmenting path, or -1 if there is none. the tree is
+    // kept until the next search, so callers may inspect or flip it
+    int findPath(int root) {
+        clearTree();
+        searchStamp++;
+
+        touch(root);
+        even[root] = true;
+        queue[0] = root;
+        return grow(1);
+    }
+
+    // grow the alternating forest whose outer vertices are queue[0 .. tail);
+    // returns a free vertex reached by an augmenting path, or -1
+    private int grow(int tail) {
+        int head = 0;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int to = targets[k];
+                if (match[v] == to || dead[to] || base(v) == base(to)) continue;
+
+                if (even[to]) {
+                    // edge between two outer vertices: contract blossom
+                    int curBase = lca(v, to);
+                    if (curBase == -1) {
+                        // only a multi-root search can join two trees
+                        throw new IllegalStateException("programmer error;" +
+                        " found augmenting path; matching not maximum.");
+                    }
+                    tail = contractPath(v, curBase, to, tail);
+                    tail = contractPath(to, curBase, v, tail);
+                }
+                else if (p[to] == -1) {
+                    p[to] = v;
+                    touch(to);
+                    if (match[to] == -1) return to;
+                    int next = match[to];
+                    touch(next);
+                    even[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // flip matched and unmatched edges along the path from the root of the
+    // current tree to free vertex v; the matching grows by one
+    void augment(int v) {
+        while (v != -1) {
+            int pv = p[v];
+            int ppv = match[pv];
+            match[v] = pv;
+            match[pv] = v;
+            v = ppv;
+        }
+        matchingSize++;
+    }
+
+    // flip the even alternating path from the root of the current tree to
+    // outer vertex x: the root becomes matched and x becomes free, while
+    // every other vertex stays matched. the matching keeps its size
+    void flipEvenPath(int x) {
+        int y = match[x];
+        match[x] = -1;
+        match[y] = -1;
+        matchingSize--;
+        augment(y);
+    }
+
+    // is v an outer vertex of the current tree?
+    boolean isOuter(int v) {
+        return treeMark[v] == searchStamp && even[v];
+    }
+
+    // is v an inner (odd) vertex of the current tree?
+    boolean isInner(int v) {
+        return treeMark[v] == searchStamp && !even[v];
+    }
+
+    // number of vertices touched by the current search
+    int treeSize() {
+        return this.treeSize;
+    }
+
+    // i-th vertex touched by the current search
+    int treeVertex(int i) {
+        return this.tree[i];
+    }
+
+    // lowest common ancestor of the blossoms containing a and b, or -1 if
+    // they are in different trees. walks up from both sides in turn, so the
+    // cost is proportional to the paths being contracted rather than to the
+    // depth of the tree
+    private int lca(int a, int b) {
+        lcaStamp++;
+        while (true) {
+            if (a == -1 && b == -1) return -1;
+            if (a != -1) {
+                a = base(a);
+                if (lcaMark[a] == lcaStamp) return a;
+                lcaMark[a] = lcaStamp;
+                a = match[a] == -1 ? -1 : p[match[a]]; // -1 past the root
+            }
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+    }
+
+    // merge the blossoms on the path from v down to base b into the blossom
+    // of b, point the parents of outer vertices around the cycle, and queue
+    // the inner vertices, which are now outer; returns new end of queue.
+    // the walk must see the old bases, so merging waits until it is done
+    private int contractPath(int v, int b, int child, int tail) {
+        int length = 0;
+        while (base(v) != b) {
+            int mate = match[v];
+            path[length++] = v;
+            path[length++] = mate;
+            p[v] = child;
+            child = mate;
+            v = p[mate];
+        }
+        for (int i = 0; i < length; i++) {
+            int x = path[i];
+            merge(x, b);
+            if (!even[x]) {
+                even[x] = true;
+                queue[tail++] = x;
+            }
+        }
+        return tail;
+    }
+
+    // base of the blossom containing v
+    private int base(int v) {
+        while (blossomSet[v] != v) {
+            blossomSet[v] = blossomSet[blossomSet[v]]; // path halving
+            v = blossomSet[v];
+        }
+        return baseOf[v];
+    }
+
+    // merge the blossom containing v into the blossom with base b
+    private void merge(int v, int b) {
+        int root = v;
+        while (blossomSet[root] != root) root = blossomSet[root];
+        int bRoot = b;
+        while (blossomSet[bRoot] != bRoot) bRoot = blossomSet[bRoot];
+        if (root == bRoot) return;
+        blossomSet[root] = bRoot;
+        baseOf[bRoot] = b;
+    }
+
+    // add v to the current tree
+    private void touch(int v) {
+        if (treeMark[v] == searchStamp) return;
+        treeMark[v] = searchStamp;
+        tree[treeSize++] = v;
+    }
+
+    // reset state of the vertices in the previous tree
+    private void clearTree() {
+        for (int i = 0; i < treeSize; i++) {
+            int v = tree[i];
+            p[v] = -1;
+            blossomSet[v] = v;
+            baseOf[v] = v;
+            even[v] = false;
+        }
+        treeSize = 0;
+    }
+
+    // returns a Tutte-Berge barrier for the current (maximum) matching: the
+    // odd vertices of the alternating forest grown from all free vertices
+    // at once. G - S then has |S| + (free vertices) odd components
+    public boolean[] getTutteBergeSet() {
+        growForest();
+        boolean[] barrier = new boolean[n];
+        for (int i = 0; i < treeSize; i++) {
+            if (!even[tree[i]]) barrier[tree[i]] = true;
+        }
+        return barrier;
+    }
+
+    // grow one alternating forest from every free vertex at once. for a
+    // maximum matching, its outer vertices are the Gallai-Edmonds set D and
+    // its inner vertices the set A (see isOuter, isInner)
+    void growForest() {
+        Arrays.fill(dead, 0, n, false); // failed trees are needed again
+        clearTree();
+        searchStamp++;
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (match[v] != -1) continue;
+            touch(v);
+            even[v] = true;
+            queue[tail++] = v;
+        }
+        grow(tail);
+    }
+
+    // keep v out of every later search, until the next load
+    void exclude(int v) {
+        dead[v] = true;
+    }
+
+    // is mates a matching of g that barrier proves maximum? checks that the
+    // number of free vertices equals (odd components of g - barrier) -
+    // |barrier|, the Tutte-Berge bound. O(n + m)
+    public static boolean isTutteBergeWitness(CSRGraph g, int[] mates, boolean[] barrier) {
+        int n = g.getNumVertices();
+        int[] offsets = g.getOffsets();
+        int[] targets = g.getTargets();
+        int numFree = 0;
+        int barrierSize = 0;
+        for (int v = 0; v < n; v++) {
+            int mate = mates[v];
+            if (mate == -1) numFree++;
+            else if (mate < 0 || mate >= n || mates[mate] != v || !g.hasEdge(v, mate)) {
+                return false;
+            }
+            if (barrier[v]) barrierSize++;
+        }
+
+        int numOdd = 0;
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        for (int root = 0; root < n; root++) {
+            if (visited[root] || barrier[root]) continue;
+            int head = 0;
+            int tail = 0;
+            visited[root] = true;
+            queue[tail++] = root;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    int u = targets[k];
+                    if (visited[u] || barrier[u]) continue;
+                    visited[u] = true;
+                    queue[tail++] = u;
+                }
+            }
+            if (tail % 2 == 1) numOdd++;
+        }
+        return numOdd - barrierSize == numFree;
+    }
+
+    // returns the size of the max cardinality matching of this graph
+    public int getMaxMatchingSize() {
+        return this.matchingSize;
+    }
+
+    // returns mate of vertex v in the matching, or -1 if v is unmatched
+    public int getMate(int v) {
+        return this.match[v];
+    }
+
+    // returns copy of the mate array
+    public int[] getMates() {
+        return Arrays.copyOf(this.match, this.n);
+    }
+
+    // returns the edge set of the max cardinality matching of this graph
+    public HashSet<Edge> getMaxMatching() {
+        HashSet<Edge> matching = new HashSet<Edge>();
+        for (int v = 0; v < n; v++) {
+            if (match[v] > v) matching.add(new Edge(v, match[v], g.getWeight(v, match[v])));
+        }
+        return matching;
+    }
+
+    // String representation of result
+    public String toString() {
+        StringBuilder edges = new StringBuilder();
+        for (Edge e : this.getMaxMatching()) {
+            edges.append(e).append("\n");
+        }
+        return "--------------------------------------------------\n" +
+        "SPARSE BLOSSOM RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Max matching size:\n" + this.getMaxMatchingSize() + "\n\n" +
+        "Illustration:\n" +
+        edges +
+        "--------------------------------------------------";
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        SparseBlossom blossom = new SparseBlossom(g);
+        System.out.println(blossom);
+    }
+}
@@ -0,0 +1,686 @@
+/*******************************************************************************
+* Edmonds' weighted blossom algorithm for finding maximum weight matchings in
+* general graphs. Maintains a dual variable for every vertex and every
+* (nested) blossom, and grows alternating trees along tight edges only. The
+* least-slack edge out of every vertex / outer blossom is tracked so that each
+* dual adjustment is found without rescanning the graph.
+* Edge weights are read from the adjacency matrix of the graph; non-positive
+* entries are never worth matching.
+* Time complexity: O(n^3), where n = |V(G)|
+*
+* Author: Jesse Goodman, implementation follows Galil's survey
+* "Efficient algorithms for finding maximum matching in graphs"
+*******************************************************************************/
+import java.util.*;
+
+public class WeightedBlossom {
+
+    private HashSet<Edge> maxMatching;
+    private long maxMatchingWeight;
+    private int[] vertexMatches; // vertexMatches[v] is mate of v, or -1
+
+    private int n; // number of vertices
+    private int numEdges;
+    private int[] endpoint; // endpoint[2k], endpoint[2k+1] are ends of edge k
+    private long[] weight; // doubled weight of each edge, keeps duals integral
+    private int[][] neighbEnd; // remote endpoints of edges incident to v
+
+    // for vertices and blossoms (indices n .. 2n-1 are blossoms)
+    private int[] mate; // remote endpoint of matched edge, or -1
+    private int[] label; // 0 = free, 1 = S (outer), 2 = T (inner)
+    private int[] labelEnd; // endpoint through which label was assigned
+    private int[] inBlossom; // top level blossom containing vertex
+    private int[] blossomParent;
+    private int[][] blossomChilds;
+    private int[] blossomBase;
+    private int[][] blossomEndps;
+    private int[] bestEdge; // least slack edge to an S blossom
+    private int[][] blossomBestEdges;
+    private int[] unusedBlossoms;
+    private int numUnused;
+    private long[] dualVar;
+    private boolean[] allowEdge;
+    private int[] queue;
+    private int queueSize;
+    private int[] leafStack; // scratch space for blossomLeaves
+
+    // run the weighted blossom algorithm for maximum weight matchings in a
+    // general graph
+    public WeightedBlossom(Graph g) {
+        int[][] adjMatrix = g.getAdjMatrix();
+        this.n = g.getNumVertices();
+
+        // collect edges worth matching
+        ArrayList<Edge> posEdges = new ArrayList<Edge>();
+        for (Edge e : g.getEdges()) {
+            if (adjMatrix[e.v1()][e.v2()] > 0) posEdges.add(e);
+        }
+        this.numEdges = posEdges.size();
+        this.endpoint = new int[2 * numEdges];
+        this.weight = new long[numEdges];
+        int[] degree = new int[n];
+        long maxWeight = 0;
+        for (int k = 0; k < numEdges; k++) {
+            Edge e = posEdges.get(k);
+            endpoint[2 * k] = e.v1();
+            endpoint[2 * k + 1] = e.v2();
+            weight[k] = 2L * adjMatrix[e.v1()][e.v2()];
+            maxWeight = Math.max(maxWeight, weight[k]);
+            degree[e.v1()]++;
+            degree[e.v2()]++;
+        }
+        this.neighbEnd = new int[n][];
+        for (int v = 0; v < n; v++) {
+            neighbEnd[v] = new int[degree[v]];
+            degree[v] = 0;
+        }
+        for (int k = 0; k < numEdges; k++) {
+            int i = endpoint[2 * k];
+            int j = endpoint[2 * k + 1];
+            neighbEnd[i][degree[i]++] = 2 * k + 1;
+            neighbEnd[j][degree[j]++] = 2 * k;
+        }
+
+        this.mate = new int[n];
+        Arrays.fill(mate, -1);
+        this.label = new int[2 * n];
+        this.labelEnd = new int[2 * n];
+        Arrays.fill(labelEnd, -1);
+        this.inBlossom = new int[n];
+        for (int v = 0; v < n; v++) inBlossom[v] = v;
+        this.blossomParent = new int[2 * n];
+        Arrays.fill(blossomParent, -1);
+        this.blossomChilds = new int[2 * n][];
+        this.blossomBase = new int[2 * n];
+        for (int v = 0; v < n; v++) blossomBase[v] = v;
+        Arrays.fill(blossomBase, n, 2 * n, -1);
+        this.blossomEndps = new int[2 * n][];
+        this.bestEdge = new int[2 * n];
+        Arrays.fill(bestEdge, -1);
+        this.blossomBestEdges = new int[2 * n][];
+        this.unusedBlossoms = new int[n];
+        this.numUnused = n;
+        for (int i = 0; i < n; i++) unusedBlossoms[i] = 2 * n - 1 - i;
+        this.dualVar = new long[2 * n];
+        Arrays.fill(dualVar, 0, n, maxWeight / 2);
+        this.allowEdge = new boolean[numEdges];
+        this.queue = new int[n];
+        this.leafStack = new int[n];
+
+        /* FIND AND SET MAX MATCHING */
+        for (int stage = 0; stage < n; stage++) {
+            if (!runStage()) break;
+        }
+
+        this.vertexMatches = new int[n];
+        this.maxMatching = new HashSet<Edge>();
+        this.maxMatchingWeight = 0;
+        for (int v = 0; v < n; v++) {
+            vertexMatches[v] = mate[v] == -1 ? -1 : endpoint[mate[v]];
+            if (vertexMatches[v] > v) {
+                int u = vertexMatches[v];
+                maxMatching.add(new Edge(u, v, adjMatrix[u][v]));
+                maxMatchingWeight += adjMatrix[u][v];
+            }
+        }
+
+        /* VALIDATE MAX MATCHING */
+        if (!Blossom.isValidMatching(this.maxMatching)) {
+            throw new IllegalStateException("programmer error;" +
+            " somehow created invalid matching:\n" + this.maxMatching);
+        }
+    }
+
+    // one stage: grow alternating trees and adjust duals until we either
+    // augment the matching (returns true) or prove optimality (false)
+    private boolean runStage() {
+        Arrays.fill(label, 0);
+        Arrays.fill(bestEdge, -1);
+        for (int b = n; b < 2 * n; b++) blossomBestEdges[b] = null;
+        Arrays.fill(allowEdge, false);
+        queueSize = 0;
+
+        for (int v = 0; v < n; v++) {
+            if (mate[v] == -1 && label[inBlossom[v]] == 0) assignLabel(v, 1, -1);
+        }
+
+        while (true) {
+            // scan S vertices for tight edges
+            while (queueSize > 0) {
+                int v = queue[--queueSize];
+                for (int p : neighbEnd[v]) {
+                    int k = p / 2;
+                    int w = endpoint[p];
+                    if (inBlossom[v] == inBlossom[w]) continue;
+
+                    long kslack = 0;
+                    if (!allowEdge[k]) {
+                        kslack = slack(k);
+                        if (kslack <= 0) allowEdge[k] = true;
+                    }
+
+                    if (allowEdge[k]) {
+                        if (label[inBlossom[w]] == 0) {
+                            // w is free; label it T and its mate S
+                            assignLabel(w, 2, p ^ 1);
+                        }
+                        else if (label[inBlossom[w]] == 1) {
+                            // either a new blossom or an augmenting path
+                            int base = scanBlossom(v, w);
+                            if (base >= 0) {
+                                addBlossom(base, k);
+                            }
+                            else {
+                                augmentMatching(k);
+                                expandZeroDualBlossoms();
+                                return true;
+                            }
+                        }
+                        else if (label[w] == 0) {
+                            // w is inside a T blossom but not yet reached
+                            label[w] = 2;
+                            labelEnd[w] = p ^ 1;
+                        }
+                    }
+                    else if (label[inBlossom[w]] == 1) {
+                        int b = inBlossom[v];
+                        if (bestEdge[b] == -1 || kslack < slack(bestEdge[b])) {
+                            bestEdge[b] = k;
+                        }
+                    }
+                    else if (label[w] == 0) {
+                        if (bestEdge[w] == -1 || kslack < slack(bestEdge[w])) {
+                            bestEdge[w] = k;
+                        }
+                    }
+                }
+            }
+
+            // no tight edge left to use; find the smallest dual change
+            int deltaType = 1;
+            long delta = Long.MAX_VALUE;
+            int deltaEdge = -1;
+            int deltaBlossom = -1;
+
+            for (int v = 0; v < n; v++) {
+                delta = Math.min(delta, dualVar[v]);
+            }
+            for (int v = 0; v < n; v++) {
+                if (label[inBlossom[v]] == 0 && bestEdge[v] != -1) {
+                    long d = slack(bestEdge[v]);
+                    if (d < delta) {
+                        delta = d;
+                        deltaType = 2;
+                        deltaEdge = bestEdge[v];
+                    }
+                }
+            }
+            for (int b = 0; b < 2 * n; b++) {
+                if (blossomParent[b] == -1 && label[b] == 1 && bestEdge[b] != -1) {
+                    long d = slack(bestEdge[b]) / 2;
+                    if (d < delta) {
+                        delta = d;
+                        deltaType = 3;
+                        deltaEdge = bestEdge[b];
+                    }
+                }
+            }
+            for (int b = n; b < 2 * n; b++) {
+                if (blossomBase[b] >= 0 && blossomParent[b] == -1 &&
+                label[b] == 2 && dualVar[b] < delta) {
+                    delta = dualVar[b];
+                    deltaType = 4;
+                    deltaBlossom = b;
+                }
+            }
+            if (n == 0 || delta < 0) delta = 0;
+
+            // apply dual change
+            for (int v = 0; v < n; v++) {
+                if (label[inBlossom[v]] == 1) dualVar[v] -= delta;
+                else if (label[inBlossom[v]] == 2) dualVar[v] += delta;
+            }
+            for (int b = n; b < 2 * n; b++) {
+                if (blossomBase[b] >= 0 && blossomParent[b] == -1) {
+                    if (label[b] == 1) dualVar[b] += delta;
+                    else if (label[b] == 2) dualVar[b] -= delta;
+                }
+            }
+
+            if (deltaType == 1) {
+                // some vertex dual reached zero; matching is optimal
+                return false;
+            }
+            else if (deltaType == 2 || deltaType == 3) {
+                allowEdge[deltaEdge] = true;
+                int i = endpoint[2 * deltaEdge];
+                if (label[inBlossom[i]] == 0) i = endpoint[2 * deltaEdge + 1];
+                pushQueue(i);
+            }
+            else {
+                expandBlossom(deltaBlossom, false);
+            }
+        }
+    }
+
+    // after an augmentation, S blossoms with zero dual can be dissolved
+    private void expandZeroDualBlossoms() {
+        for (int b = n; b < 2 * n; b++) {
+            if (blossomParent[b] == -1 && blossomBase[b] >= 0 &&
+            label[b] == 1 && dualVar[b] == 0) {
+                expandBlossom(b, true);
+            }
+        }
+    }
+
+    // slack of edge k: du + dv - w(k)
+    private long slack(int k) {
+        return dualVar[endpoint[2 * k]] + dualVar[endpoint[2 * k + 1]] - weight[k];
+    }
+
+    // writes all vertices contained in blossom b into out, returns count
+    private int blossomLeaves(int b, int[] out) {
+        if (b < n) {
+            out[0] = b;
+            return 1;
+        }
+        int count = 0;
+        int top = 0;
+        leafStack[top++] = b;
+        while (top > 0) {
+            int t = leafStack[--top];
+            for (int c : blossomChilds[t]) {
+                if (c < n) out[count++] = c;
+                else leafStack[top++] = c;
+            }
+        }
+        return count;
+    }
+
+    // label the top level blossom containing w with t, reached through
+    // endpoint p. T blossoms immediately give their mate an S label
+    private void assignLabel(int w, int t, int p) {
+        while (true) {
+            int b = inBlossom[w];
+            label[w] = label[b] = t;
+            labelEnd[w] = labelEnd[b] = p;
+            bestEdge[w] = bestEdge[b] = -1;
+            if (t == 1) {
+                int[] leaves = new int[n];
+                int count = blossomLeaves(b, leaves);
+                for (int i = 0; i < count; i++) pushQueue(leaves[i]);
+                return;
+            }
+            int base = blossomBase[b];
+            w = endpoint[mate[base]];
+            t = 1;
+            p = mate[base] ^ 1;
+        }
+    }
+
+    // trace back from v and w to find a common S blossom base.
+    // returns the base of the new blossom, or -1 if the trees differ
+    // (i.e. we found an augmenting path)
+    private int scanBlossom(int v, int w) {
+        int[] path = new int[2 * n];
+        int pathLen = 0;
+        int base = -1;
+        while (v != -1 || w != -1) {
+            int b = inBlossom[v];
+            if ((label[b] & 4) != 0) {
+                base = blossomBase[b];
+                break;
+            }
+            path[pathLen++] = b;
+            label[b] = 5;
+            if (labelEnd[b] == -1) {
+                v = -1; // reached root
+            }
+            else {
+                v = endpoint[labelEnd[b]];
+                b = inBlossom[v];
+                v = endpoint[labelEnd[b]];
+            }
+            if (w != -1) {
+                int tmp = v;
+                v = w;
+                w = tmp;
+            }
+        }
+        for (int i = 0; i < pathLen; i++) label[path[i]] = 1;
+        return base;
+    }
+
+    // build a new blossom with given base, through S vertices linked by edge k
+    private void addBlossom(int base, int k) {
+        int v = endpoint[2 * k];
+        int w = endpoint[2 * k + 1];
+        int bb = inBlossom[base];
+        int bv = inBlossom[v];
+        int bw = inBlossom[w];
+
+        int b = unusedBlossoms[--numUnused];
+        blossomBase[b] = base;
+        blossomParent[b] = -1;
+        blossomParent[bb] = b;
+
+        // trace back from v to base, then from w to base
+        ArrayList<Integer> path = new ArrayList<Integer>();
+        ArrayList<Integer> endps = new ArrayList<Integer>();
+        while (bv != bb) {
+            blossomParent[bv] = b;
+            path.add(bv);
+            endps.add(labelEnd[bv]);
+            v = endpoint[labelEnd[bv]];
+            bv = inBlossom[v];
+        }
+        path.add(bb);
+        Collections.reverse(path);
+        Collections.reverse(endps);
+        endps.add(2 * k);
+        while (bw != bb) {
+            blossomParent[bw] = b;
+            path.add(bw);
+            endps.add(labelEnd[bw] ^ 1);
+            w = endpoint[labelEnd[bw]];
+            bw = inBlossom[w];
+        }
+        blossomChilds[b] = toArray(path);
+        blossomEndps[b] = toArray(endps);
+
+        label[b] = 1;
+        labelEnd[b] = labelEnd[bb];
+        dualVar[b] = 0;
+
+        int[] leaves = new int[n];
+        int count = blossomLeaves(b, leaves);
+        for (int i = 0; i < count; i++) {
+            int leaf = leaves[i];
+            // former T vertices become S and must be scanned
+            if (label[inBlossom[leaf]] == 2) pushQueue(leaf);
+            inBlossom[leaf] = b;
+        }
+
+        // compute least slack edges from the new blossom to other S blossoms
+        int[] bestEdgeTo = new int[2 * n];
+        Arrays.fill(bestEdgeTo, -1);
+        for (int child : blossomChilds[b]) {
+            if (blossomBestEdges[child] == null) {
+                int childCount = blossomLeaves(child, leaves);
+                for (int i = 0; i < childCount; i++) {
+                    for (int p : neighbEnd[leaves[i]]) {
+                        considerBestEdge(p / 2, b, bestEdgeTo);
+                    }
+                }
+            }
+            else {
+                for (int e : blossomBestEdges[child]) {
+                    considerBestEdge(e, b, bestEdgeTo);
+                }
+            }
+            blossomBestEdges[child] = null;
+            bestEdge[child] = -1;
+        }
+        int numBest = 0;
+        for (int e : bestEdgeTo) {
+            if (e != -1) numBest++;
+        }
+        int[] best = new int[numBest];
+        numBest = 0;
+        for (int e : bestEdgeTo) {
+            if (e != -1) best[numBest++] = e;
+        }
+        blossomBestEdges[b] = best;
+        bestEdge[b] = -1;
+        for (int e : best) {
+            if (bestEdge[b] == -1 || slack(e) < slack(bestEdge[b])) bestEdge[b] = e;
+        }
+    }
+
+    // helper for addBlossom; keep edge k if it is the best so far from
+    // blossom b to some other S blossom
+    private void considerBestEdge(int k, int b, int[] bestEdgeTo) {
+        int i = endpoint[2 * k];
+        int j = endpoint[2 * k + 1];
+        if (inBlossom[j] == b) {
+            int tmp = i;
+            i = j;
+            j = tmp;
+        }
+        int bj = inBlossom[j];
+        if (bj != b && label[bj] == 1 &&
+        (bestEdgeTo[bj] == -1 || slack(k) < slack(bestEdgeTo[bj]))) {
+            bestEdgeTo[bj] = k;
+        }
+    }
+
+    // expand blossom b into its sub-blossoms. if endStage is false, relabel
+    // the sub-blossoms of a T blossom so the alternating tree stays valid
+    private void expandBlossom(int b, boolean endStage) {
+        int[] leaves = new int[n];
+        for (int s : blossomChilds[b]) {
+            blossomParent[s] = -1;
+            if (s < n) {
+                inBlossom[s] = s;
+            }
+            else if (endStage && dualVar[s] == 0) {
+                expandBlossom(s, endStage);
+            }
+            else {
+                int count = blossomLeaves(s, leaves);
+                for (int i = 0; i < count; i++) inBlossom[leaves[i]] = s;
+            }
+        }
+
+        if (!endStage && label[b] == 2) {
+            int[] childs = blossomChilds[b];
+            int[] endps = blossomEndps[b];
+            int len = childs.length;
+            int entryChild = inBlossom[endpoint[labelEnd[b] ^ 1]];
+            int j = indexOf(childs, entryChild);
+            int jStep;
+            int endpTrick;
+            if ((j & 1) != 0) {
+                j -= len;
+                jStep = 1;
+                endpTrick = 0;
+            }
+            else {
+                jStep = -1;
+                endpTrick = 1;
+            }
+
+            // relabel the even length path from entry child to base
+            int p = labelEnd[b];
+            while (j != 0) {
+                label[endpoint[p ^ 1]] = 0;
+                label[endpoint[endps[mod(j - endpTrick, len)] ^ endpTrick ^ 1]] = 0;
+                assignLabel(endpoint[p ^ 1], 2, p);
+                allowEdge[endps[mod(j - endpTrick, len)] / 2] = true;
+                j += jStep;
+                p = endps[mod(j - endpTrick, len)] ^ endpTrick;
+                allowEdge[p / 2] = true;
+                j += jStep;
+            }
+
+            int bv = childs[mod(j, len)];
+            label[endpoint[p ^ 1]] = label[bv] = 2;
+            labelEnd[endpoint[p ^ 1]] = labelEnd[bv] = p;
+            bestEdge[bv] = -1;
+            j += jStep;
+
+            // sub-blossoms on the odd length path lose their labels,
+            // unless they contain a vertex already reached by a T edge
+            while (childs[mod(j, len)] != entryChild) {
+                bv = childs[mod(j, len)];
+                if (label[bv] == 1) {
+                    j += jStep;
+                    continue;
+                }
+                int count = blossomLeaves(bv, leaves);
+                int v = -1;
+                for (int i = 0; i < count; i++) {
+                    if (label[leaves[i]] != 0) {
+                        v = leaves[i];
+                        break;
+                    }
+                }
+                if (v != -1) {
+                    label[v] = 0;
+                    label[endpoint[mate[blossomBase[bv]]]] = 0;
+                    assignLabel(v, 2, labelEnd[v]);
+                }
+                j += jStep;
+            }
+        }
+
+        label[b] = labelEnd[b] = -1;
+        blossomChilds[b] = blossomEndps[b] = null;
+        blossomBase[b] = -1;
+        blossomBestEdges[b] = null;
+        bestEdge[b] = -1;
+        unusedBlossoms[numUnused++] = b;
+    }
+
+    // swap matched/unmatched edges along the even alternating path from
+    // vertex v to the base of blossom b, so that v becomes the new base
+    private void augmentBlossom(int b, int v) {
+        int t = v;
+        while (blossomParent[t] != b) t = blossomParent[t];
+        if (t >= n) augmentBlossom(t, v);
+
+        int[] childs = blossomChilds[b];
+        int[] endps = blossomEndps[b];
+        int len = childs.length;
+        int i = indexOf(childs, t);
+        int j = i;
+        int jStep;
+        int endpTrick;
+        if ((i & 1) != 0) {
+            j -= len;
+            jStep = 1;
+            endpTrick = 0;
+        }
+        else {
+            jStep = -1;
+            endpTrick = 1;
+        }
+
+        while (j != 0) {
+            j += jStep;
+            t = childs[mod(j, len)];
+            int p = endps[mod(j - endpTrick, len)] ^ endpTrick;
+            if (t >= n) augmentBlossom(t, endpoint[p]);
+            j += jStep;
+            t = childs[mod(j, len)];
+            if (t >= n) augmentBlossom(t, endpoint[p ^ 1]);
+            mate[endpoint[p]] = p ^ 1;
+            mate[endpoint[p ^ 1]] = p;
+        }
+
+        // rotate so that the new base is the first child
+        blossomChilds[b] = rotate(childs, i);
+        blossomEndps[b] = rotate(endps, i);
+        blossomBase[b] = blossomBase[blossomChilds[b][0]];
+    }
+
+    // augment the matching along the path through edge k
+    private void augmentMatching(int k) {
+        for (int side = 0; side < 2; side++) {
+            int s = endpoint[2 * k + side];
+            int p = 2 * k + 1 - side;
+            while (true) {
+                int bs = inBlossom[s];
+                if (bs >= n) augmentBlossom(bs, s);
+                mate[s] = p;
+                if (labelEnd[bs] == -1) break; // reached root
+
+                int t = endpoint[labelEnd[bs]];
+                int bt = inBlossom[t];
+                s = endpoint[labelEnd[bt]];
+                int j = endpoint[labelEnd[bt] ^ 1];
+                if (bt >= n) augmentBlossom(bt, j);
+                mate[j] = labelEnd[bt];
+                p = labelEnd[bt] ^ 1;
+            }
+        }
+    }
+
+    /* PRIVATE HELPER METHODS */
+
+    // add S vertex v to the queue of vertices to be scanned
+    private void pushQueue(int v) {
+        if (queueSize == queue.length) {
+            queue = Arrays.copyOf(queue, 2 * queue.length);
+        }
+        queue[queueSize++] = v;
+    }
+
+    private static int mod(int a, int len) {
+        return ((a % len) + len) % len;
+    }
+
+    private static int indexOf(int[] arr, int x) {
+        for (int i = 0; i < arr.length; i++) {
+            if (arr[i] == x) return i;
+        }
+        throw new IllegalStateException("programmer error; blossom child missing.");
+    }
+
+    private static int[] rotate(int[] arr, int i) {
+        int[] rotated = new int[arr.length];
+        for (int j = 0; j < arr.length; j++) {
+            rotated[j] = arr[(i + j) % arr.length];
+        }
+        return rotated;
+    }
+
+    private static int[] toArray(ArrayList<Integer> list) {
+        int[] arr = new int[list.size()];
+        for (int i = 0; i < arr.length; i++) arr[i] = list.get(i);
+        return arr;
+    }
+
+    // returns the edge set of the max weight matching of this graph
+    public HashSet<Edge> getMaxMatching() {
+        return this.maxMatching;
+    }
+
+    // returns the number of edges in the max weight matching of this graph
+    public int getMaxMatchingSize() {
+        return this.maxMatching.size();
+    }
+
+    // returns the total weight of the max weight matching of this graph
+    public long getMaxMatchingWeight() {
+        return this.maxMatchingWeight;
+    }
+
+    // returns mate of vertex v in the matching, or -1 if v is unmatched
+    public int getMate(int v) {
+        return this.vertexMatches[v];
+    }
+
+    // String representation of result
+    public String toString() {
+        StringBuilder edges = new StringBuilder();
+        for (Edge e : this.getMaxMatching()) {
+            edges.append(e).append("\n");
+        }
+        return "--------------------------------------------------\n" +
+        "WEIGHTED BLOSSOM RESULTS:\n" +
+        "--------------------------------------------------\n" +
+        "Max matching weight:\n" + this.getMaxMatchingWeight() + "\n\n" +
+        "Max matching size:\n" + this.getMaxMatchingSize() + "\n\n" +
+        "Illustration:\n" +
+        edges +
+        "--------------------------------------------------";
+    }
+
+    // unit testing
+    public static void main(String[] args) {
+        Graph g = new Graph(Graph.loadMatrixFromStdIn());
+        WeightedBlossom wb = new WeightedBlossom(g);
+        System.out.println(wb);
+    }
+}
@@ -2,6 +2,11 @@
 * Hopcroft-Karp algorithm for finding maximum matchings in bipartite graphs.
 * Time complexity: O(n^(5/2)), where n is the number of vertices in the graph.
 *
+* The result is checked against a Konig vertex cover: a cover with as many
+* vertices as the matching has edges proves the matching is maximum, and it
+* is found and checked in O(|V| + |E|). The exhaustive augmenting path search
+* (O(|V||E|)) only runs when asked for, or when DEBUG is set.
+*
 * Author: Jesse Goodman
 *
 ******************************************************************************/
@@ -13,6 +18,10 @@ public class HopcroftKarp {
     private boolean[] matchedVertices;
     private boolean[] freeBoys; // free vertices in first partition
     private boolean[] partitions;
+    private boolean[] vertexCover; // Konig cover certifying maxMatching
+    private int[] mates; // mate of each vertex in maxMatching, or -1
+    private int[] alternatingScc; // SCC labels of the alternating digraph
+    private boolean[] evenReached; // on an even alternating path from a free vertex
     private Graph g;
     private int numGHatsMade;
     private HashSet<Edge> augAcc; // augmenting path accumulator
@@ -24,6 +33,13 @@ public class HopcroftKarp {
 
     // run hopcroft karp algorithm for maximum matchings in a bipartite graph
     public HopcroftKarp(Graph g) {
+        this(g, DEBUG);
+    }
+
+    // run hopcroft karp algorithm for maximum matchings in a bipartite graph.
+    // the matching is always certified by a vertex cover; if fullCheck, it
+    // is also searched exhaustively for augmenting paths
+    public HopcroftKarp(Graph g, boolean fullCheck) {
         this.g = g;
         this.numGHatsMade = 0;
         // is this vertex a girl?
@@ -54,6 +70,15 @@ public class HopcroftKarp {
             " somehow created invalid matching.");
         }
 
+        // certify that our matching is maximum: a vertex cover of the same
+        // size bounds every matching
+        this.vertexCover = konigCover();
+        if (!isCertifiedBy(vertexCover)) {
+            throw new IllegalStateException("programmer error;" +
+            " vertex cover check failed; matching not maximum.");
+        }
+        if (!fullCheck) return;
+
         // check here to make sure we cannot find any more augmenting
         // paths; that is, make sure our matching is maximum
         for (int i = 0; i < partitions.length; i++) {
@@ -68,6 +93,194 @@ public class HopcroftKarp {
         }
     }
 
+    // Konig's construction: Z is the set of vertices reachable from free boys
+    // by alternating paths; (boys not in Z) + (girls in Z) covers every edge,
+    // and each cover vertex is matched, one per matching edge. O(|V| + |E|)
+    private boolean[] konigCover() {
+        int n = g.getNumVertices();
+        this.mates = new int[n];
+        Arrays.fill(mates, -1);
+        for (Edge e : this.maxMatching) {
+            mates[e.v1()] = e.v2();
+            mates[e.v2()] = e.v1();
+        }
+
+        boolean[] reached = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (partitions[i] && mates[i] == -1) {
+                reached[i] = true;
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int boy = queue[head++];
+            for (Edge e : g.getVertices().get(boy)) {
+                int girl = e.v2();
+                if (reached[girl] || mates[boy] == girl) continue;
+                reached[girl] = true;
+                // girl is matched, or the matching would not be maximum
+                if (mates[girl] != -1 && !reached[mates[girl]]) {
+                    reached[mates[girl]] = true;
+                    queue[tail++] = mates[girl];
+                }
+            }
+        }
+
+        boolean[] cover = new boolean[n];
+        for (int i = 0; i < n; i++) cover[i] = partitions[i] != reached[i];
+        return cover;
+    }
+
+    // is cover a vertex cover no larger than the matching? every matching
+    // edge needs its own cover vertex, so then maxMatching is maximum.
+    // O(|V| + |E|)
+    private boolean isCertifiedBy(boolean[] cover) {
+        int size = 0;
+        for (int v = 0; v < cover.length; v++) {
+            if (cover[v]) size++;
+        }
+        if (size > maxMatching.size()) return false;
+        for (int v = 0; v < cover.length; v++) {
+            if (cover[v]) continue;
+            for (Edge e : g.getVertices().get(v)) {
+                if (!cover[e.v2()]) return false;
+            }
+        }
+        return true;
+    }
+
+    // is edge (u, v) in some maximum matching? the first call does an
+    // O(|V| + |E|) pass (see findMatchableEdges); later calls are O(1)
+    public boolean isMatchable(int u, int v) {
+        if (!g.toCSR().hasEdge(u, v)) return false;
+        if (alternatingScc == null) findMatchableEdges();
+        return mates[u] == v || evenReached[u] || evenReached[v] ||
+            alternatingScc[u] == alternatingScc[v];
+    }
+
+    // returns every edge that is in some maximum matching
+    public HashSet<Edge> getMatchableEdges() {
+        HashSet<Edge> matchable = new HashSet<Edge>();
+        for (int v = 0; v < g.getNumVertices(); v++) {
+            for (Edge e : g.getVertices().get(v)) {
+                if (v < e.v2() && isMatchable(v, e.v2())) matchable.add(e);
+            }
+        }
+        return matchable;
+    }
+
+    // an unmatched edge (u, v) is in some maximum matching iff it lies on an
+    // even alternating path from a free vertex (then u or v is reached by
+    // one, ending in a matched edge), or on an even alternating cycle (then
+    // u and v are strongly connected once matched edges point from boys to
+    // girls and unmatched edges from girls to boys). O(|V| + |E|)
+    private void findMatchableEdges() {
+        CSRGraph csr = g.toCSR();
+        int n = csr.getNumVertices();
+        int[] offsets = csr.getOffsets();
+        int[] targets = csr.getTargets();
+
+        // even alternating paths, from the free vertices of both sides
+        this.evenReached = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (mates[v] != -1) continue;
+            evenReached[v] = true;
+            queue[tail++] = v;
+        }
+        while (head < tail) {
+            int v = queue[head++];
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                int mate = mates[targets[k]];
+                if (mate == -1 || evenReached[mate]) continue;
+                evenReached[mate] = true;
+                queue[tail++] = mate;
+            }
+        }
+
+        // alternating digraph: each boy points to his mate, each girl to her
+        // unmatched neighbors
+        int[] dOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int out;
+            if (partitions[v]) out = mates[v] == -1 ? 0 : 1;
+            else out = csr.degree(v) - (mates[v] == -1 ? 0 : 1);
+            dOffsets[v + 1] = dOffsets[v] + out;
+        }
+        int[] dTargets = new int[dOffsets[n]];
+        for (int v = 0; v < n; v++) {
+            int pos = dOffsets[v];
+            if (partitions[v]) {
+                if (mates[v] != -1) dTargets[pos] = mates[v];
+                continue;
+            }
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                if (targets[k] != mates[v]) dTargets[pos++] = targets[k];
+            }
+        }
+        this.alternatingScc = stronglyConnectedComponents(n, dOffsets, dTargets);
+    }
+
+    // Tarjan's strongly connected components of the digraph whose arcs out
+    // of v are targets[offsets[v] .. offsets[v+1]), with an explicit call
+    // stack instead of recursion; returns the component label of each vertex
+    private static int[] stronglyConnectedComponents(int n, int[] offsets, int[] targets) {
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] next = new int[n]; // next arc to follow out of each vertex
+        int[] stack = new int[n];
+        int[] calls = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] component = new int[n];
+        Arrays.fill(index, -1);
+        int counter = 0;
+        int numComponents = 0;
+        int sp = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1) continue;
+            int top = 0;
+            index[root] = low[root] = counter++;
+            next[root] = offsets[root];
+            stack[sp++] = root;
+            onStack[root] = true;
+            calls[top++] = root;
+            while (top > 0) {
+                int v = calls[top - 1];
+                if (next[v] < offsets[v + 1]) {
+                    int w = targets[next[v]++];
+                    if (index[w] == -1) {
+                        index[w] = low[w] = counter++;
+                        next[w] = offsets[w];
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        calls[top++] = w;
+                    }
+                    else if (onStack[w]) low[v] = Math.min(low[v], index[w]);
+                    continue;
+                }
+                // v is finished: pass its lowlink up and pop its component
+                top--;
+                if (top > 0) low[calls[top - 1]] = Math.min(low[calls[top - 1]], low[v]);
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--sp];
+                        onStack[w] = false;
+                        component[w] = numComponents;
+                    } while (w != v);
+                    numComponents++;
+                }
+            }
+        }
+        return component;
+    }
+
     // does there exist an augmenting path starting from vertex v?
     private boolean existsAugPath(boolean[] visited, int v, int lenPath) {
         boolean boy = lenPath % 2 == 0;
@@ -211,7 +424,7 @@ public class HopcroftKarp {
 
                         // do we want a matching edge for our alternating path?
                         // yes -- odd level
-                        Edge mirror_j = new Edge(j.v2(), j.v1(), 1);
+                        Edge mirror_j = new Edge(j.v2(), j.v1(), j.getWeight());
                         if (i % 2 == 1) {
                             if (maxMatching.contains(j) || maxMatching.contains(mirror_j)) {
                                 newVertex.add(j);
@@ -390,6 +603,12 @@ public class HopcroftKarp {
         }
     }
 
+    // returns a minimum vertex cover (Konig), as membership flags; it has
+    // one vertex per edge of the max matching
+    public boolean[] getVertexCover() {
+        return this.vertexCover;
+    }
+
     public int getNumGHatsMade() {
         return this.numGHatsMade;
     }